@@ -0,0 +1,167 @@
+package NEATLib;
+
+/**
+ * Activation function of the nodes of a network. The sigmoid variants scale
+ * their input with the sigmoid modifier of the NEAT instance, the others use
+ * it as it is.
+ */
+public enum Activation
+{
+    // Logistic sigmoid 1 / (1 + e^(-m * x)), the default
+    SIGMOID,
+    /* Logistic sigmoid looked up in a table of TABLE_SIZE values over
+     * [-TABLE_RANGE, TABLE_RANGE] and interpolated linearly, clamped outside.
+     * Deviates from SIGMOID by at most 1e-6. */
+    SIGMOID_TABLE,
+    /* Logistic sigmoid through a rational [7/6] Pade approximation of tanh,
+     * 0.5 + 0.5 * tanh(m * x / 2), clamped once the approximation reaches
+     * +-1. Deviates from SIGMOID by at most 5e-5. */
+    SIGMOID_RATIONAL,
+    // Hyperbolic tangent of x, ranging from -1 to 1
+    TANH,
+    // Rectified linear unit max(0, x), unbounded
+    RELU;
+
+    // All activation functions, values() copies the array on every call
+    static final Activation[] VALUES = values();
+    // Largest absolute argument of the sigmoid covered by the table
+    static final double TABLE_RANGE = 16;
+    // Amount of values in the table
+    static final int TABLE_SIZE = 4097;
+    // Table steps per unit of the argument
+    static final double TABLE_SCALE = (TABLE_SIZE - 1) / (2 * TABLE_RANGE);
+    // Sigmoid values at evenly spaced arguments from -TABLE_RANGE on
+    static final double[] TABLE = new double[TABLE_SIZE];
+    // Argument of the rational approximation from which on it is clamped
+    static final double RATIONAL_LIMIT = 4.97;
+
+    static {
+        for(int i = 0; i < TABLE_SIZE; i++) {
+            TABLE[i] = 1.0 / (1.0 + Math.exp(TABLE_RANGE - i / TABLE_SCALE));
+        }
+    }
+
+    /**
+     * Applies the activation function
+     * @param x Summed input of the node
+     * @param modifier Sigmoid modifier of the NEAT instance
+     * @return Returns the activated value
+     */
+    public double apply(double x, double modifier)
+    {
+        switch(this) {
+            case SIGMOID_TABLE:
+                return table(x * modifier);
+            case SIGMOID_RATIONAL:
+                return 0.5 + 0.5 * rationalTanh(x * modifier * 0.5);
+            case TANH:
+                return Math.tanh(x);
+            case RELU:
+                return x > 0 ? x : 0;
+            default:
+                return 1.0 / (1.0 + Math.exp(-x * modifier));
+        }
+    }
+
+    /**
+     * Applies the activation function to a run of values. The loop is
+     * specialised for every function, so the JIT compiler can vectorise the
+     * ones without calls or table lookups.
+     * @param sums Summed inputs
+     * @param values Array receiving the activated values
+     * @param length Amount of values
+     * @param modifier Sigmoid modifier of the NEAT instance
+     */
+    public void apply(double[] sums, double[] values, int length, double modifier)
+    {
+        switch(this) {
+            case SIGMOID_TABLE:
+                for(int i = 0; i < length; i++) {
+                    values[i] = table(sums[i] * modifier);
+                }
+                break;
+            case SIGMOID_RATIONAL:
+                for(int i = 0; i < length; i++) {
+                    values[i] = 0.5 + 0.5 * rationalTanh(sums[i] * modifier * 0.5);
+                }
+                break;
+            case TANH:
+                for(int i = 0; i < length; i++) {
+                    values[i] = Math.tanh(sums[i]);
+                }
+                break;
+            case RELU:
+                for(int i = 0; i < length; i++) {
+                    values[i] = Math.max(sums[i], 0.0);
+                }
+                break;
+            default:
+                for(int i = 0; i < length; i++) {
+                    values[i] = 1.0 / (1.0 + Math.exp(-sums[i] * modifier));
+                }
+                break;
+        }
+    }
+
+    /**
+     * @param modifier Sigmoid modifier of the NEAT instance
+     * @return Returns the largest slope of the activation function
+     */
+    public double getLipschitz(double modifier)
+    {
+        switch(this) {
+            case TANH:
+            case RELU:
+                return 1;
+            default:
+                return modifier / 4;
+        }
+    }
+
+    /**
+     * @return Returns the largest absolute value the function can return
+     */
+    public double getMagnitude()
+    {
+        return this == RELU ? Double.POSITIVE_INFINITY : 1;
+    }
+
+    /**
+     * @return Returns the smallest value the function can return
+     */
+    public double getMinimum()
+    {
+        return this == TANH ? -1 : 0;
+    }
+
+    /**
+     * Looks up the sigmoid in the table
+     * @param t Argument of the sigmoid, already multiplied by the modifier
+     * @return Returns the interpolated sigmoid value
+     */
+    static double table(double t)
+    {
+        double position = (t + TABLE_RANGE) * TABLE_SCALE;
+        if(!(position > 0)) {return TABLE[0];}
+        if(position >= TABLE_SIZE - 1) {return TABLE[TABLE_SIZE - 1];}
+
+        int index = (int) position;
+        double fraction = position - index;
+        return TABLE[index] + (TABLE[index + 1] - TABLE[index]) * fraction;
+    }
+
+    /**
+     * Rational approximation of tanh
+     * @param u Argument of tanh
+     * @return Returns the approximated tanh value
+     */
+    static double rationalTanh(double u)
+    {
+        if(u >= RATIONAL_LIMIT) {return 1;}
+        if(u <= -RATIONAL_LIMIT) {return -1;}
+
+        double u2 = u * u;
+        return u * (135135 + u2 * (17325 + u2 * (378 + u2)))
+                / (135135 + u2 * (62370 + u2 * (3150 + u2 * 28)));
+    }
+}
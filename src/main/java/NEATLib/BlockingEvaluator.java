@@ -0,0 +1,155 @@
+package NEATLib;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Evaluates the networks of a generation with fitness functions which spend
+ * most of their time blocked, e.g. waiting on a simulator behind a socket or
+ * a pipe. Every network is evaluated on a thread of its own, at most a given
+ * amount at once. Where the runtime offers virtual threads they are used, so
+ * a blocked evaluation does not hold on to a carrier thread. Otherwise an
+ * unbounded pool of platform threads takes their place, which the limit
+ * keeps in check.
+ */
+public class BlockingEvaluator
+{
+    // Executor starting a thread per evaluation
+    ExecutorService executor;
+    // Whether the executor runs on virtual threads
+    boolean isVirtual;
+    // Permits for the evaluations running at once
+    Semaphore permits;
+    // Maximum amount of evaluations running at once
+    int maxConcurrency;
+
+    // *STRUCTORS --------------------------------------------------------------
+
+    /**
+     * Constructor for an evaluator running at most the given amount of
+     * evaluations at once
+     * @param maxConcurrency Maximum amount of evaluations at once
+     */
+    public BlockingEvaluator(int maxConcurrency)
+    {
+        if(maxConcurrency < 1) {
+            throw new IllegalArgumentException("At least one evaluation has to run at once");
+        }
+
+        this.maxConcurrency = maxConcurrency;
+        permits = new Semaphore(maxConcurrency);
+
+        try {
+            /* Virtual threads are final from Java 21 on, while the build 
+             * uses a JDK 17 toolchain, so look the executor up at runtime */
+            executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            isVirtual = true;
+        } catch(ReflectiveOperationException e) {
+            executor = Executors.newCachedThreadPool((Runnable r) -> {
+                Thread thread = new Thread(r, "NEAT evaluation");
+                thread.setDaemon(true);
+                return thread;
+            });
+            isVirtual = false;
+        }
+    }
+
+    // METHODS -----------------------------------------------------------------
+
+    /**
+     * @return Returns whether the evaluations run on virtual threads
+     */
+    public boolean isVirtual()
+    {
+        return isVirtual;
+    }
+
+    /**
+     * @return Returns the maximum amount of evaluations running at once
+     */
+    public int getMaxConcurrency()
+    {
+        return maxConcurrency;
+    }
+
+    /**
+     * Evaluates every network of the current generation on a thread of its
+     * own and adds the fitness. Returns once all evaluations have finished.
+     * @param neat The NEAT instance holding the networks
+     * @param episodes Amount of episodes per network
+     * @param fitness The fitness function, called on the thread of the network
+     */
+    public void evaluate(NEAT neat, int episodes, ParallelEvaluator.EpisodeFitness fitness)
+    {
+        int networks = neat.getNetworkCount();
+        List<Future<?>> tasks = new ArrayList<>(networks);
+
+        try {
+            for(int i = 0; i < networks; i++) {
+                int index = i;
+                NEATNetwork network = neat.getNetwork(index);
+                // Compile up front, the network is then used by its thread only
+                network.compile();
+
+                // Wait for a free permit before a new thread is started
+                permits.acquire();
+                try {
+                    tasks.add(executor.submit(() -> {
+                        try {
+                            double sum = 0;
+
+                            for(int e = 0; e < episodes; e++) {
+                                sum += fitness.evaluate(network, e);
+                            }
+
+                            neat.addFitness(sum, index);
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                } catch(RuntimeException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+
+            for(Future<?> task : tasks) {
+                task.get();
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(tasks);
+            throw new IllegalStateException("Interrupted while evaluating", e);
+        } catch(ExecutionException e) {
+            cancel(tasks);
+            throw new IllegalStateException("Evaluation failed", e.getCause());
+        }
+    }
+
+    /**
+     * Cancels all evaluations still running
+     * @param tasks The submitted evaluations
+     */
+    static void cancel(List<Future<?>> tasks)
+    {
+        for(Future<?> task : tasks) {
+            task.cancel(true);
+        }
+    }
+
+    /**
+     * Stops the threads of this evaluator once the running evaluations have
+     * finished
+     */
+    public void shutdown()
+    {
+        executor.shutdown();
+    }
+}
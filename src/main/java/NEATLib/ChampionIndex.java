@@ -0,0 +1,187 @@
+package NEATLib;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import NEATLib.NEATNetwork.Connection;
+
+/**
+ * Index over the champions of all species which skips most of the exact
+ * compatibility calculations during speciation. For every champion the gene
+ * count and the lowest and highest innovation number are kept as a summary.
+ * At most as many genes can match as innovation numbers fit into the overlap
+ * of both innovation ranges, and every other gene of the bigger genome adds
+ * at least one excess or disjoint gene in compareCompatibility. This gives a
+ * lower bound of the delta in constant time. Whenever the lower bound already
+ * reaches the maximum delta the exact comparison is skipped, so the species
+ * assignment stays exactly the same.
+ */
+public class ChampionIndex
+{
+    // Reference to the NEAT instance
+    NEAT reference;
+    // Gene count, lowest and highest innovation number of every champion, in
+    // the order of the champions
+    List<int[]> summaries = new ArrayList<>();
+
+    // Amount of champions a specimen has been checked against
+    long candidates = 0;
+    // Amount of exact comparisons skipped through the lower bound
+    long pruned = 0;
+
+    // *STRUCTORS --------------------------------------------------------------
+
+    /**
+     * Constructor for an empty index
+     * @param ref Reference to the NEAT instance
+     */
+    ChampionIndex(NEAT ref)
+    {
+        reference = ref;
+    }
+
+    // METHODS -----------------------------------------------------------------
+
+    /**
+     * Adds the champion of a new species behind all others
+     * @param champion The champion of the new species
+     */
+    void add(NEATNetwork champion)
+    {
+        summaries.add(summarize(champion));
+    }
+
+    /**
+     * Removes all champions
+     */
+    void clear()
+    {
+        summaries.clear();
+    }
+
+    /**
+     * Finds the first species whose champion is compatible to the specimen
+     * @param champions List of champions, in the same order as they were added
+     * @param specimen The specimen looking for a species
+     * @return Returns the index of the species or -1 if there is none
+     */
+    int findSpecies(List<NEATNetwork> champions, NEATNetwork specimen)
+    {
+        int[] summary = summarize(specimen);
+
+        /* The exact comparison sorts the connections of the specimen, on 
+         * which later mutations depend, so sort them even if every exact 
+         * comparison is skipped */
+        if(!champions.isEmpty()) {
+            Collections.sort(specimen.connections, (Connection c1, Connection c2) -> {
+                return c1.innovationNumber - c2.innovationNumber;
+            });
+        }
+
+        double weightC1 = reference.WEIGHT_C1;
+        double weightC2 = reference.WEIGHT_C2;
+        double weightC3 = reference.WEIGHT_C3;
+        // Negative weights would invalidate the lower bound
+        boolean canPrune = weightC1 >= 0 && weightC2 >= 0 && weightC3 >= 0
+                && maxBound() >= reference.MAX_DELTA;
+
+        for(int i = 0; i < champions.size(); i++)
+        {
+            candidates++;
+
+            if(canPrune && lowerBound(summaries.get(i), summary) >= reference.MAX_DELTA)
+            {
+                pruned++;
+                continue;
+            }
+
+            if(champions.get(i).compareCompatibility(specimen, weightC1, weightC2, weightC3) < reference.MAX_DELTA)
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Calculates a lower bound of the delta between two networks
+     * @param a Summary of the first network
+     * @param b Summary of the second network
+     * @return Returns a value never larger than the delta
+     */
+    double lowerBound(int[] a, int[] b)
+    {
+        // Same choice of the bigger genome as in compareCompatibility
+        int[] bigger = a[0] > b[0] ? a : b;
+        int[] smaller = bigger == a ? b : a;
+        if(bigger[0] == 0) {return 0;}
+
+        // Innovation numbers are unique, so this limits the matching genes
+        long overlap = (long) Math.min(bigger[2], smaller[2]) - Math.max(bigger[1], smaller[1]) + 1;
+        int matching = (int) Math.max(0, Math.min(smaller[0], overlap));
+
+        int normalizer = reference.SMALL_GENOME_CUTOFF > smaller[0] ? 1 : bigger[0];
+        double bound = Math.min(reference.WEIGHT_C1, reference.WEIGHT_C2)
+                * (bigger[0] - matching) / normalizer;
+        // Leave room for the rounding of the exact calculation
+        return bound * (1 - 1e-9);
+    }
+
+    /**
+     * Without a small genome cutoff the excess and disjoint genes are divided
+     * by the size of the bigger genome, so the lower bound can never exceed
+     * the smaller of both weights. Pruning is then turned off if that is below
+     * the maximum delta, which is the case for the default settings.
+     * @return Returns the largest value the lower bound can reach
+     */
+    double maxBound()
+    {
+        if(reference.SMALL_GENOME_CUTOFF > 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Math.min(reference.WEIGHT_C1, reference.WEIGHT_C2);
+    }
+
+    /**
+     * @param network The network to be summarised
+     * @return Returns the gene count, the lowest and the highest innovation
+     * number of the network
+     */
+    static int[] summarize(NEATNetwork network)
+    {
+        int low = Integer.MAX_VALUE;
+        int high = Integer.MIN_VALUE;
+        for(Connection c : network.connections) {
+            low = Math.min(low, c.innovationNumber);
+            high = Math.max(high, c.innovationNumber);
+        }
+        return new int[] {network.connections.size(), low, high};
+    }
+
+    /**
+     * @return Returns the amount of champions specimen have been checked
+     * against
+     */
+    public long getCandidateCount()
+    {
+        return candidates;
+    }
+
+    /**
+     * @return Returns the amount of exact comparisons skipped
+     */
+    public long getPrunedCount()
+    {
+        return pruned;
+    }
+
+    /**
+     * @return Returns the share of exact comparisons skipped
+     */
+    public double getPruningRate()
+    {
+        return candidates == 0 ? 0 : (double) pruned / candidates;
+    }
+}
@@ -0,0 +1,764 @@
+package NEATLib;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import NEATLib.NEATNetwork.Type;
+
+/**
+ * Memory saving representation of a NEAT genome. Instead of linked node and
+ * connection objects the genes are kept in primitive parallel arrays. The
+ * connection genes are always sorted after their innovation number, the node
+ * genes after their ID.
+ */
+public class CompactGenome
+{
+    // Reference to the NEAT instance
+    NEAT reference;
+
+    // Number of output nodes in this genome
+    int outputs = 0;
+    // Number of input nodes in this genome
+    int inputs = 0;
+    // Fitness of this genome
+    public double fitness = 0.0;
+    // Activation function of all nodes in this genome
+    Activation activation;
+
+    //// NODE GENES
+    // IDs of the nodes, sorted ascending
+    int[] nodeIDs;
+    // Ordinal of the type of every node
+    byte[] nodeTypes;
+    // Layer number of every node to keep track of the sequence
+    double[] layerNumbers;
+
+    //// CONNECTION GENES
+    // Innovation numbers of the connections, sorted ascending
+    int[] innovations;
+    // ID of the input node of every connection
+    int[] inNodes;
+    // ID of the output node of every connection
+    int[] outNodes;
+    /* Weight of every connection. Depending on the precision of the NEAT
+     * instance only one of the two arrays is in use, the other one is null. */
+    double[] weights;
+    float[] floatWeights;
+    // Whether or not a connection is active
+    BitSet enabled;
+
+    /* Cached processing order. Holds triples of gene index, input node slot and
+     * output node slot of the expressed genes, sorted after the processing
+     * order of the input node. Dropped on every structural change. */
+    int[] plan;
+
+    // *STRUCTORS --------------------------------------------------------------
+
+    /**
+     * Constructor for a new genome. Equivalent to the initial networks of a
+     * new run, every input is connected to every output.
+     * @param inCount Amount of wanted input nodes.
+     * @param outCount Amount of wanted output nodes.
+     * @param ref Reference to the NEAT instance.
+     */
+    public CompactGenome(int inCount, int outCount, NEAT ref)
+    {
+        inputs = inCount;
+        outputs = outCount;
+        reference = ref;
+        activation = ref.ACTIVATION;
+
+        int nodeCount = inCount + outCount;
+        nodeIDs = new int[nodeCount];
+        nodeTypes = new byte[nodeCount];
+        layerNumbers = new double[nodeCount];
+
+        for(int i = 0; i < nodeCount; i++)
+        {
+            boolean isInput = i < inCount;
+            nodeIDs[i] = i;
+            nodeTypes[i] = (byte) (isInput ? Type.INPUT : Type.OUTPUT).ordinal();
+            layerNumbers[i] = isInput ? Double.MIN_VALUE : Double.MAX_VALUE;
+        }
+
+        innovations = new int[0];
+        inNodes = new int[0];
+        outNodes = new int[0];
+        allocateWeights(0);
+        enabled = new BitSet();
+
+        for(int i = 0; i < outCount; i++)
+        {
+            for(int j = 0; j < inCount; j++)
+            {
+                addGene(j, inCount + i, 1, true);
+            }
+        }
+    }
+
+    /**
+     * Constructor to return a deep copy of the provided genome
+     * @param old The genome to be copied
+     */
+    public CompactGenome(CompactGenome old)
+    {
+        inputs = old.inputs;
+        outputs = old.outputs;
+        reference = old.reference;
+        activation = old.activation;
+
+        nodeIDs = old.nodeIDs.clone();
+        nodeTypes = old.nodeTypes.clone();
+        layerNumbers = old.layerNumbers.clone();
+
+        innovations = old.innovations.clone();
+        inNodes = old.inNodes.clone();
+        outNodes = old.outNodes.clone();
+        weights = old.weights == null ? null : old.weights.clone();
+        floatWeights = old.floatWeights == null ? null : old.floatWeights.clone();
+        enabled = (BitSet) old.enabled.clone();
+
+        // The plan is never altered in place and can be shared
+        plan = old.plan;
+    }
+
+    /**
+     * Constructor converting a network into its compact representation
+     * @param network The network to be converted
+     */
+    public CompactGenome(NEATNetwork network)
+    {
+        inputs = network.inputs;
+        outputs = network.outputs;
+        reference = network.reference;
+        fitness = network.fitness;
+        activation = network.activation;
+
+        // Copy the nodes sorted after their ID
+        NEATNetwork.Node[] sortedNodes = network.nodes.toArray(new NEATNetwork.Node[0]);
+        Arrays.sort(sortedNodes, (NEATNetwork.Node a, NEATNetwork.Node b) ->
+                Integer.compare(a.nodeID, b.nodeID));
+
+        nodeIDs = new int[sortedNodes.length];
+        nodeTypes = new byte[sortedNodes.length];
+        layerNumbers = new double[sortedNodes.length];
+        for(int i = 0; i < sortedNodes.length; i++)
+        {
+            nodeIDs[i] = sortedNodes[i].nodeID;
+            nodeTypes[i] = (byte) sortedNodes[i].t.ordinal();
+            layerNumbers[i] = sortedNodes[i].layerNumber;
+        }
+
+        // Copy the connections sorted after their innovation number
+        NEATNetwork.Connection[] sortedConnections =
+                network.connections.toArray(new NEATNetwork.Connection[0]);
+        Arrays.sort(sortedConnections, (NEATNetwork.Connection a, NEATNetwork.Connection b) ->
+                Integer.compare(a.innovationNumber, b.innovationNumber));
+
+        int geneCount = sortedConnections.length;
+        innovations = new int[geneCount];
+        inNodes = new int[geneCount];
+        outNodes = new int[geneCount];
+        allocateWeights(geneCount);
+        enabled = new BitSet(geneCount);
+        for(int i = 0; i < geneCount; i++)
+        {
+            innovations[i] = sortedConnections[i].innovationNumber;
+            inNodes[i] = sortedConnections[i].inRef.nodeID;
+            outNodes[i] = sortedConnections[i].outRef.nodeID;
+            setWeight(i, sortedConnections[i].weight);
+            enabled.set(i, sortedConnections[i].enabled);
+        }
+    }
+
+    /**
+     * Constructor for a new genome. Used during mating process.
+     * @param parent Genome of which the nodes are taken over.
+     * @param geneCount Amount of connection genes in the new genome.
+     */
+    private CompactGenome(CompactGenome parent, int geneCount)
+    {
+        inputs = parent.inputs;
+        outputs = parent.outputs;
+        reference = parent.reference;
+        activation = parent.activation;
+
+        nodeIDs = parent.nodeIDs.clone();
+        nodeTypes = parent.nodeTypes.clone();
+        layerNumbers = parent.layerNumbers.clone();
+
+        innovations = new int[geneCount];
+        inNodes = new int[geneCount];
+        outNodes = new int[geneCount];
+        allocateWeights(geneCount);
+        enabled = new BitSet(geneCount);
+    }
+
+    /**
+     * Constructor for an empty genome with a fixed amount of genes. Used when
+     * genomes are read from another storage.
+     * @param ref Reference to the NEAT instance.
+     * @param inCount Amount of input nodes.
+     * @param outCount Amount of output nodes.
+     * @param nodeCount Amount of node genes in the new genome.
+     * @param geneCount Amount of connection genes in the new genome.
+     */
+    CompactGenome(NEAT ref, int inCount, int outCount, int nodeCount, int geneCount)
+    {
+        inputs = inCount;
+        outputs = outCount;
+        reference = ref;
+        activation = ref.ACTIVATION;
+
+        nodeIDs = new int[nodeCount];
+        nodeTypes = new byte[nodeCount];
+        layerNumbers = new double[nodeCount];
+
+        innovations = new int[geneCount];
+        inNodes = new int[geneCount];
+        outNodes = new int[geneCount];
+        allocateWeights(geneCount);
+        enabled = new BitSet(geneCount);
+    }
+
+    // METHODS -----------------------------------------------------------------
+
+    /**
+     * Increases the fitness
+     * @param value Value with which the fitness is increased
+     */
+    public void addFitness(double value)
+    {
+        fitness += value;
+    }
+
+    /**
+     * @return Returns the amount of connection genes in this genome
+     */
+    public int getGeneCount()
+    {
+        return innovations.length;
+    }
+
+    /**
+     * @return Returns the amount of node genes in this genome
+     */
+    public int getNodeCount()
+    {
+        return nodeIDs.length;
+    }
+
+    /**
+     * Converts the genome back into a network
+     * @return Returns a network holding the same genes as this genome
+     */
+    public NEATNetwork toNetwork()
+    {
+        return new NEATNetwork(this);
+    }
+
+    /**
+     * Calculate the delta between two genomes. Both gene arrays are sorted,
+     * so a single pass over the bigger genome suffices. Excess and disjoint
+     * genes are counted exactly as in NEATNetwork.compareCompatibility.
+     * @param b Genome to be compared with.
+     * @param weightC1 Weight on the excess genes
+     * @param weightC2 Weight on the disjoint genes
+     * @param weightC3 Weight on the average difference in matching weights
+     * @return Returns the delta between the two genomes
+     */
+    public double compareCompatibility(
+            CompactGenome b,
+            double weightC1,
+            double weightC2,
+            double weightC3)
+    {
+        // Same choice of the bigger genome as in NEATNetwork
+        CompactGenome bigger = innovations.length > b.innovations.length ? this : b;
+        CompactGenome smaller = bigger == this ? b : this;
+        int[] big = bigger.innovations;
+        int[] small = smaller.innovations;
+        // Number of connection genes in the bigger specimen
+        int n = big.length;
+
+        // Number of excess genes
+        int excess = 0;
+        // Number of disjoint genes
+        int disjoint = 0;
+        // Number of matching genes
+        int matching = 0;
+        // Difference in weight between the matching genes
+        double weightDifference = 0;
+
+        int index = 0;
+        for(int i = 0; i < n; i++)
+        {
+            if(index == small.length)
+            {
+                excess++;
+            }
+            else if(big[i] == small[index])
+            {
+                matching++;
+                weightDifference += Math.abs(bigger.getWeight(i) - smaller.getWeight(index));
+                index++;
+            }
+            else if(big[i] < small[index])
+            {
+                disjoint++;
+            }
+            else
+            {
+                // Skip the smaller innovation numbers of the other genome
+                int temp = 0;
+                while(big[i] > small[index])
+                {
+                    temp++;
+                    index++;
+                    if(index == small.length) {
+                        excess += temp;
+                        break;
+                    } else if(big[i] <= small[index]) {
+                        disjoint += temp;
+                        break;
+                    }
+                }
+            }
+        }
+
+        // Average matching gene's weight differences
+        if(matching != 0) {
+            weightDifference = weightDifference / matching;
+        }
+
+        int normalizer = reference.SMALL_GENOME_CUTOFF > small.length ? 1 : n;
+
+        return    (weightC1 * excess / normalizer)
+                + (weightC2 * disjoint / normalizer)
+                + (weightC3 * weightDifference);
+    }
+
+    /**
+     * Mates two genomes and returns a new genome. The nodes and the genes are
+     * taken from the fitter parent, matching genes inherit the weight of the
+     * less fit parent in relation to its fitness.
+     * @param a Parent A for the new genome
+     * @param b Parent B for the new genome
+     * @return Returns the offspring of A and B as a new genome
+     */
+    public CompactGenome mate(CompactGenome a, CompactGenome b)
+    {
+        // The fitter parent genome
+        CompactGenome better = a.fitness > b.fitness ? a : b;
+        // The less fit parent genome
+        CompactGenome worse = better == a ? b : a;
+        // Chance of taking over a matching gene from the less fit parent
+        double worseShare = worse.fitness / (better.fitness + worse.fitness);
+
+        int geneCount = better.innovations.length;
+        CompactGenome offspring = new CompactGenome(better, geneCount);
+
+        int j = 0;
+        for(int i = 0; i < geneCount; i++)
+        {
+            offspring.innovations[i] = better.innovations[i];
+            offspring.inNodes[i] = better.inNodes[i];
+            offspring.outNodes[i] = better.outNodes[i];
+            offspring.setWeight(i, better.getWeight(i));
+
+            // Advance the less fit parent to the same innovation
+            while(j < worse.innovations.length
+                    && worse.innovations[j] < better.innovations[i])
+            {
+                j++;
+            }
+
+            if(j < worse.innovations.length
+                    && worse.innovations[j] == better.innovations[i]
+                    && reference.random.nextDouble() < worseShare)
+            {
+                offspring.setWeight(i, worse.getWeight(j));
+            }
+
+            // Keep track of the enabled status of a gene
+            offspring.enabled.set(i, better.enabled.get(i)
+                    || reference.random.nextDouble() >= reference.PROP_KEEP_DISABLED);
+        }
+
+        return offspring;
+    }
+
+    /**
+     * Mutate a genome with given probabilities
+     */
+    public void mutate()
+    {
+        // Switch to another activation function
+        if(reference.PROP_ACTIVATION > 0 && reference.random.nextDouble() < reference.PROP_ACTIVATION) {
+            Activation[] activations = Activation.values();
+            activation = activations[(int) (reference.random.nextDouble() * activations.length)];
+        }
+
+        // Only add a connection for the first mutation
+        if(innovations.length == 0) {
+            int n1 = (int) (reference.random.nextDouble() * nodeIDs.length);
+            int n2 = getPossibility(n1);
+            if(n2 < 0) {return;}
+
+            if(nodeTypes[n1] == Type.OUTPUT.ordinal() || layerNumbers[n2] < layerNumbers[n1])
+            {
+                addGene(nodeIDs[n2], nodeIDs[n1], 1, true);
+            } else {
+                addGene(nodeIDs[n1], nodeIDs[n2], 1, true);
+            }
+
+            perturbWeights();
+            return;
+        }
+
+        // Change the weights of the connections if they have to be changed at all
+        if(reference.random.nextDouble() < reference.PROP_WEIGHT) {
+            perturbWeights();
+        }
+
+        // Add a new connection
+        if(reference.random.nextDouble() < reference.PROP_CONNECTION) {
+            int n1 = (int) (reference.random.nextDouble() * nodeIDs.length);
+            int n2 = getPossibility(n1);
+            if(n2 < 0) {return;}
+
+            if(nodeTypes[n2] == Type.INPUT.ordinal()
+                    || (layerNumbers[n2] < layerNumbers[n1] && !reference.DOES_ALLOW_RECURRENT))
+            {
+                addGene(nodeIDs[n2], nodeIDs[n1], 1, true);
+                return;
+            } else {
+                addGene(nodeIDs[n1], nodeIDs[n2], 1, true);
+            }
+        }
+
+        // Add a new node by splitting an existing connection
+        if(reference.random.nextDouble() < reference.PROP_NODE) {
+            // Get the original connection and disable it
+            int original = (int) (reference.random.nextDouble() * innovations.length);
+            enabled.clear(original);
+            int inID = inNodes[original];
+            int outID = outNodes[original];
+            double originalWeight = getWeight(original);
+
+            // Add a new node with the ID of the same split in other genomes
+            int insertID;
+            if(!reference.DOES_TRACK_SPLITS) {
+                insertID = nodeIDs[nodeIDs.length - 1] + 1;
+            } else {
+                int occurrence = 0;
+                do {
+                    insertID = reference.addSplit(innovations[original], occurrence++);
+                } while(getNodeSlot(insertID) >= 0);
+            }
+            addNode(insertID, Type.HIDDEN,
+                    layerNumbers[getNodeSlot(inID)] * 0.5 + layerNumbers[getNodeSlot(outID)] * 0.5);
+
+            // Add the new connections towards and from the new node
+            addGene(insertID, outID, originalWeight, true);
+            addGene(inID, insertID, 1, true);
+        }
+    }
+
+    /**
+     * Processes the genome with a given input. Follows the evaluation rule of
+     * a network's phenotype: only enabled genes take part in the calculation.
+     * The genome keeps no values between calls, delayed genes contribute
+     * nothing, so it yields the same outputs as the first call of the network
+     * it has been converted to.
+     * @param input Array of input values
+     * @return Returns an array corresponding to the calculated outputs
+     */
+    public double[] process(double[] input)
+    {
+        if(plan == null) {
+            buildPlan();
+        }
+
+        Precision precision = reference.PRECISION;
+        int nodeCount = nodeIDs.length;
+        double[] values = new double[nodeCount];
+        double[] sums = new double[nodeCount];
+        boolean[] activated = new boolean[nodeCount];
+
+        // Assign the input values
+        for(int i = 0; i < nodeCount; i++)
+        {
+            if(nodeTypes[i] == Type.INPUT.ordinal())
+            {
+                values[i] = precision.round(input[nodeIDs[i]]);
+                activated[i] = true;
+            }
+        }
+
+        // Go through the connections and assign the values
+        for(int p = 0; p < plan.length; p += 3)
+        {
+            int in = plan[p + 1];
+            if(!activated[in])
+            {
+                values[in] = activate(sums[in]);
+                activated[in] = true;
+            }
+
+            sums[plan[p + 2]] += precision.round(values[in] * getWeight(plan[p]));
+        }
+
+        // Get the values in the output
+        double[] output = new double[outputs];
+        for(int i = 0; i < nodeCount; i++)
+        {
+            if(nodeTypes[i] == Type.OUTPUT.ordinal())
+            {
+                output[nodeIDs[i] - inputs] = activated[i] ? values[i] : activate(sums[i]);
+            }
+        }
+
+        return output;
+    }
+
+    /**
+     * Activation function of the genome, identical to the one of a network
+     * @param x Summed input of the node
+     * @return Returns the activated value in the precision of the NEAT instance
+     */
+    double activate(double x)
+    {
+        return reference.PRECISION.round(activation.apply(x, reference.SIGMOID_MODIFIER));
+    }
+
+    /**
+     * Orders the enabled genes the same way a phenotype does, so every
+     * incoming connection has been processed before a node is used. Delayed
+     * genes are left out.
+     */
+    void buildPlan()
+    {
+        int enabledCount = enabled.cardinality();
+        int[] genes = new int[enabledCount];
+        int[] inSlots = new int[enabledCount];
+        int[] outSlots = new int[enabledCount];
+        int count = 0;
+        for(int i = enabled.nextSetBit(0); i >= 0; i = enabled.nextSetBit(i + 1))
+        {
+            genes[count] = i;
+            inSlots[count] = getNodeSlot(inNodes[i]);
+            outSlots[count] = getNodeSlot(outNodes[i]);
+            count++;
+        }
+
+        int[] order = new int[enabledCount];
+        count = new Phenotype().orderGenes(nodeIDs.length, layerNumbers, inSlots, outSlots, enabledCount, order);
+
+        int[] newPlan = new int[count * 3];
+        for(int i = 0; i < count; i++)
+        {
+            newPlan[i * 3] = genes[order[i]];
+            newPlan[i * 3 + 1] = inSlots[order[i]];
+            newPlan[i * 3 + 2] = outSlots[order[i]];
+        }
+
+        plan = newPlan;
+    }
+
+    /**
+     * Perturbs the weights of all genes uniformly or assigns random ones
+     */
+    void perturbWeights()
+    {
+        double perturbance = ((reference.random.nextDouble() * 2) - 1) * reference.RANDOM_WEIGHT_RANGE;
+
+        for(int i = 0; i < innovations.length; i++) {
+            if(reference.random.nextDouble() < reference.PROP_WEIGHT_UNIFORM) {
+                setWeight(i, getWeight(i) + perturbance);
+            } else {
+                setWeight(i, ((reference.random.nextDouble() * 2) - 1) * reference.RANDOM_WEIGHT_RANGE);
+            }
+        }
+    }
+    
+    /**
+     * Returns the weight of a connection gene
+     * @param gene Position of the gene in the gene arrays
+     * @return Returns the weight of the gene
+     */
+    double getWeight(int gene)
+    {
+        return weights != null ? weights[gene] : floatWeights[gene];
+    }
+    
+    /**
+     * Sets the weight of a connection gene in the precision of the genome
+     * @param gene Position of the gene in the gene arrays
+     * @param weight The new weight
+     */
+    void setWeight(int gene, double weight)
+    {
+        if(weights != null) {
+            weights[gene] = weight;
+        } else {
+            floatWeights[gene] = (float) weight;
+        }
+    }
+    
+    /**
+     * Allocates the weight array fitting the precision of the NEAT instance
+     * @param geneCount Amount of connection genes
+     */
+    void allocateWeights(int geneCount)
+    {
+        if(reference.PRECISION == Precision.FLOAT) {
+            weights = null;
+            floatWeights = new float[geneCount];
+        } else {
+            weights = new double[geneCount];
+            floatWeights = null;
+        }
+    }
+
+    /**
+     * Get a node with which a connection can be established. Possible are
+     * nodes of a different type or hidden nodes which are not yet connected
+     * to the node.
+     * @param slot Position of the node in the node arrays
+     * @return Returns the position of the possible node or -1 if there is none
+     */
+    int getPossibility(int slot)
+    {
+        int[] candidates = new int[nodeIDs.length];
+        int count = 0;
+
+        for(int i = 0; i < nodeIDs.length; i++)
+        {
+            if(i != slot
+                    && (nodeTypes[i] != nodeTypes[slot] || nodeTypes[i] == Type.HIDDEN.ordinal())
+                    && !isConnected(nodeIDs[slot], nodeIDs[i]))
+            {
+                candidates[count++] = i;
+            }
+        }
+
+        if(count == 0){return -1;}
+
+        return candidates[(int) (reference.random.nextDouble() * count)];
+    }
+
+    /**
+     * Checks whether two nodes are connected in either direction
+     * @param a ID of the first node
+     * @param b ID of the second node
+     * @return Returns whether a gene between the nodes exists
+     */
+    boolean isConnected(int a, int b)
+    {
+        for(int i = 0; i < innovations.length; i++)
+        {
+            if((inNodes[i] == a && outNodes[i] == b) || (inNodes[i] == b && outNodes[i] == a))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Finds the position of a node in the node arrays
+     * @param nodeID ID of the node
+     * @return Returns the position of the node
+     */
+    int getNodeSlot(int nodeID)
+    {
+        return Arrays.binarySearch(nodeIDs, nodeID);
+    }
+
+    /**
+     * Adds a node gene while keeping the node arrays sorted
+     * @param nodeID ID of the new node
+     * @param type Type of the new node
+     * @param layerNumber Layer number of the new node
+     */
+    void addNode(int nodeID, Type type, double layerNumber)
+    {
+        int slot = -(Arrays.binarySearch(nodeIDs, nodeID) + 1);
+
+        nodeIDs = insert(nodeIDs, slot, nodeID);
+
+        byte[] newTypes = new byte[nodeTypes.length + 1];
+        System.arraycopy(nodeTypes, 0, newTypes, 0, slot);
+        System.arraycopy(nodeTypes, slot, newTypes, slot + 1, nodeTypes.length - slot);
+        newTypes[slot] = (byte) type.ordinal();
+        nodeTypes = newTypes;
+
+        double[] newLayers = new double[layerNumbers.length + 1];
+        System.arraycopy(layerNumbers, 0, newLayers, 0, slot);
+        System.arraycopy(layerNumbers, slot, newLayers, slot + 1, layerNumbers.length - slot);
+        newLayers[slot] = layerNumber;
+        layerNumbers = newLayers;
+    }
+
+    /**
+     * Adds a connection gene while keeping the gene arrays sorted after their
+     * innovation number
+     * @param inID ID of the input node
+     * @param outID ID of the output node
+     * @param weight Weight of the connection
+     * @param isEnabled Whether or not the connection is active
+     */
+    void addGene(int inID, int outID, double weight, boolean isEnabled)
+    {
+        int innovation = reference.addInnovation(inID, outID);
+        int slot = Arrays.binarySearch(innovations, innovation);
+        if(slot < 0) {
+            slot = -(slot + 1);
+        }
+
+        int oldCount = innovations.length;
+        innovations = insert(innovations, slot, innovation);
+        inNodes = insert(inNodes, slot, inID);
+        outNodes = insert(outNodes, slot, outID);
+
+        if(weights != null) {
+            double[] newWeights = new double[oldCount + 1];
+            System.arraycopy(weights, 0, newWeights, 0, slot);
+            System.arraycopy(weights, slot, newWeights, slot + 1, oldCount - slot);
+            weights = newWeights;
+        } else {
+            float[] newWeights = new float[oldCount + 1];
+            System.arraycopy(floatWeights, 0, newWeights, 0, slot);
+            System.arraycopy(floatWeights, slot, newWeights, slot + 1, oldCount - slot);
+            floatWeights = newWeights;
+        }
+        setWeight(slot, weight);
+
+        // Shift the enabled flags behind the slot
+        for(int i = oldCount; i > slot; i--)
+        {
+            enabled.set(i, enabled.get(i - 1));
+        }
+        enabled.set(slot, isEnabled);
+
+        plan = null;
+    }
+
+    /**
+     * Inserts a value into a copy of the array
+     * @param array The original array
+     * @param slot Position of the new value
+     * @param value The value to be inserted
+     * @return Returns the new array
+     */
+    static int[] insert(int[] array, int slot, int value)
+    {
+        int[] result = new int[array.length + 1];
+        System.arraycopy(array, 0, result, 0, slot);
+        System.arraycopy(array, slot, result, slot + 1, array.length - slot);
+        result[slot] = value;
+        return result;
+    }
+}
@@ -0,0 +1,186 @@
+package NEATLib;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pool of networks which are no longer used. Instead of allocating new
+ * networks for every offspring, the networks of the previous generation are
+ * handed back to the pool and overwritten with the genes of the offspring,
+ * reusing their node and connection objects.
+ */
+public class GenomePool
+{
+    // Networks ready to be reused
+    List<NEATNetwork> free = new ArrayList<>();
+    // Maximum amount of networks held at once
+    int capacity;
+
+    // Amount of requests answered with a reused network
+    long hits = 0;
+    // Amount of requests for which a new network had to be allocated
+    long misses = 0;
+    // Amount of networks handed back to the pool
+    long releases = 0;
+    // Amount of released networks dropped because the pool was full
+    long drops = 0;
+    // Highest amount of networks held at once
+    int peakFreeCount = 0;
+
+    // *STRUCTORS --------------------------------------------------------------
+
+    /**
+     * Constructor for a new pool
+     * @param capacity Maximum amount of networks held at once
+     */
+    public GenomePool(int capacity)
+    {
+        this.capacity = capacity;
+    }
+
+    // METHODS -----------------------------------------------------------------
+
+    /**
+     * Returns a deep copy of the provided network, reusing a free network if
+     * one is available
+     * @param old The network to be copied
+     * @return Returns the copy
+     */
+    public NEATNetwork copyOf(NEATNetwork old)
+    {
+        if(free.isEmpty()) {
+            misses++;
+            return new NEATNetwork(old);
+        }
+
+        hits++;
+        NEATNetwork copy = free.remove(free.size() - 1);
+        copy.copyFrom(old);
+        return copy;
+    }
+
+    /**
+     * Hands a network back to the pool. The network must not be used by the
+     * caller afterwards. If the pool is full the network is left to the
+     * garbage collector.
+     * @param network The network which is no longer needed
+     */
+    public void release(NEATNetwork network)
+    {
+        releases++;
+        if(free.size() >= capacity) {
+            drops++;
+            return;
+        }
+
+        free.add(network);
+        peakFreeCount = Math.max(peakFreeCount, free.size());
+    }
+
+    /**
+     * Hands a list of networks back to the pool
+     * @param networks The networks which are no longer needed
+     */
+    public void releaseAll(List<NEATNetwork> networks)
+    {
+        for(NEATNetwork network : networks) {
+            release(network);
+        }
+    }
+
+    /**
+     * Drops all networks held by the pool
+     */
+    public void clear()
+    {
+        free.clear();
+    }
+
+    /**
+     * @return Returns the amount of networks ready to be reused
+     */
+    public int getFreeCount()
+    {
+        return free.size();
+    }
+
+    /**
+     * @return Returns the maximum amount of networks held at once
+     */
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * @return Returns the share of the capacity currently in use
+     */
+    public double getOccupancy()
+    {
+        return capacity == 0 ? 0 : (double) free.size() / capacity;
+    }
+
+    /**
+     * @return Returns the amount of released networks dropped because the
+     * pool was full
+     */
+    public long getDropCount()
+    {
+        return drops;
+    }
+
+    /**
+     * @return Returns the highest amount of networks held at once
+     */
+    public int getPeakFreeCount()
+    {
+        return peakFreeCount;
+    }
+
+    /**
+     * @return Returns the amount of node and connection objects held by the
+     * free networks
+     */
+    public long getRetainedGeneCount()
+    {
+        long genes = 0;
+
+        for(NEATNetwork network : free) {
+            genes += network.getRetainedGeneCount();
+        }
+
+        return genes;
+    }
+
+    /**
+     * @return Returns the amount of copies made from reused networks
+     */
+    public long getHitCount()
+    {
+        return hits;
+    }
+
+    /**
+     * @return Returns the amount of copies which needed a new network
+     */
+    public long getMissCount()
+    {
+        return misses;
+    }
+
+    /**
+     * @return Returns the amount of networks handed back to the pool
+     */
+    public long getReleaseCount()
+    {
+        return releases;
+    }
+
+    /**
+     * @return Returns the share of copies made from reused networks
+     */
+    public double getHitRate()
+    {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+}
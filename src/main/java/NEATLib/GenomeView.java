@@ -0,0 +1,326 @@
+package NEATLib;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import NEATLib.NEATNetwork.Type;
+
+/**
+ * Lightweight view onto a genome stored in an OffHeapPopulation. All methods
+ * read the record in place, nothing but the view and the scratch space of
+ * process lives on the heap. Reading from several threads at once is safe,
+ * processing through the same view is not.
+ */
+public class GenomeView
+{
+    // Population the genome belongs to
+    OffHeapPopulation population;
+    // Arena holding the record
+    ByteBuffer arena;
+    // Position of the record inside the arena
+    int base;
+
+    //// SCRATCH SPACE OF PROCESS, grown as needed
+    double[] values = new double[0];
+    double[] sums = new double[0];
+    boolean[] activated = new boolean[0];
+
+    // *STRUCTORS --------------------------------------------------------------
+
+    /**
+     * Constructor for a view onto a record
+     * @param population Population the genome belongs to
+     * @param arena Arena holding the record
+     * @param base Position of the record inside the arena
+     */
+    GenomeView(OffHeapPopulation population, ByteBuffer arena, int base)
+    {
+        this.population = population;
+        this.arena = arena;
+        this.base = base;
+    }
+
+    // METHODS -----------------------------------------------------------------
+
+    /**
+     * @return Returns the fitness of the genome
+     */
+    double getFitness()
+    {
+        return arena.getDouble(base + OffHeapPopulation.FITNESS);
+    }
+
+    /**
+     * @return Returns the amount of node genes in this genome
+     */
+    int getNodeCount()
+    {
+        return arena.getInt(base + OffHeapPopulation.NODE_COUNT);
+    }
+
+    /**
+     * @return Returns the amount of connection genes in this genome
+     */
+    int getGeneCount()
+    {
+        return arena.getInt(base + OffHeapPopulation.GENE_COUNT);
+    }
+
+    /**
+     * @return Returns the amount of enabled connection genes in this genome
+     */
+    int getPlanCount()
+    {
+        return arena.getInt(base + OffHeapPopulation.PLAN_COUNT);
+    }
+
+    /**
+     * Position of a node gene inside the arena
+     * @param slot Slot of the node
+     * @return Returns the position
+     */
+    int nodePosition(int slot)
+    {
+        return base + OffHeapPopulation.HEADER_SIZE + slot * OffHeapPopulation.NODE_SIZE;
+    }
+
+    /**
+     * @param slot Slot of the node
+     * @return Returns the ID of the node
+     */
+    int getNodeID(int slot)
+    {
+        return arena.getInt(nodePosition(slot));
+    }
+
+    /**
+     * @param slot Slot of the node
+     * @return Returns the type ordinal of the node
+     */
+    int getNodeType(int slot)
+    {
+        return arena.getInt(nodePosition(slot) + 4);
+    }
+
+    /**
+     * @param slot Slot of the node
+     * @return Returns the layer number of the node
+     */
+    double getLayerNumber(int slot)
+    {
+        return arena.getDouble(nodePosition(slot) + 8);
+    }
+
+    /**
+     * Position of a connection gene inside the arena
+     * @param gene Index of the gene
+     * @return Returns the position
+     */
+    int genePosition(int gene)
+    {
+        return base + OffHeapPopulation.HEADER_SIZE
+                + getNodeCount() * OffHeapPopulation.NODE_SIZE
+                + gene * population.geneSize;
+    }
+
+    /**
+     * @param gene Index of the gene
+     * @return Returns the innovation number of the gene
+     */
+    int getInnovation(int gene)
+    {
+        return arena.getInt(genePosition(gene));
+    }
+
+    /**
+     * @param gene Index of the gene
+     * @return Returns the slot of the input node
+     */
+    int getInSlot(int gene)
+    {
+        return arena.getInt(genePosition(gene) + 4);
+    }
+
+    /**
+     * @param gene Index of the gene
+     * @return Returns the slot of the output node
+     */
+    int getOutSlot(int gene)
+    {
+        return arena.getInt(genePosition(gene) + 8);
+    }
+
+    /**
+     * @param gene Index of the gene
+     * @return Returns whether the connection is active
+     */
+    boolean isEnabled(int gene)
+    {
+        return arena.getInt(genePosition(gene) + 12) != 0;
+    }
+
+    /**
+     * @param gene Index of the gene
+     * @return Returns the weight of the connection
+     */
+    double getWeight(int gene)
+    {
+        return readWeight(genePosition(gene));
+    }
+
+    /**
+     * @param position Position of a connection gene inside the arena
+     * @return Returns the weight of the connection
+     */
+    double readWeight(int position)
+    {
+        if(population.isFloat) {
+            return arena.getFloat(position + OffHeapPopulation.WEIGHT);
+        }
+
+        return arena.getDouble(position + OffHeapPopulation.WEIGHT);
+    }
+
+    /**
+     * @param entry Position in the processing order
+     * @return Returns the index of the gene processed at that position
+     */
+    int getPlanEntry(int entry)
+    {
+        return arena.getInt(base + OffHeapPopulation.HEADER_SIZE
+                + getNodeCount() * OffHeapPopulation.NODE_SIZE
+                + getGeneCount() * population.geneSize
+                + entry * OffHeapPopulation.PLAN_ENTRY_SIZE);
+    }
+
+    /**
+     * Copies the node genes of this genome into another arena
+     * @param target Arena to be written to
+     * @param position Position of the first node inside the target arena
+     */
+    void copyNodesTo(ByteBuffer target, int position)
+    {
+        int start = nodePosition(0);
+        int length = getNodeCount() * OffHeapPopulation.NODE_SIZE;
+
+        for(int i = 0; i < length; i += 8) {
+            target.putLong(position + i, arena.getLong(start + i));
+        }
+    }
+
+    /**
+     * Processes the genome with a given input. Follows the same rules as
+     * CompactGenome.process, so no values are carried over between calls.
+     * Only the output is allocated, the values of the nodes are kept in
+     * scratch space of the view.
+     * @param input Array of input values
+     * @return Returns an array corresponding to the calculated outputs
+     */
+    public double[] process(double[] input)
+    {
+        Precision precision = population.reference.PRECISION;
+        int nodeCount = getNodeCount();
+        if(sums.length < nodeCount) {
+            values = new double[nodeCount];
+            sums = new double[nodeCount];
+            activated = new boolean[nodeCount];
+        } else {
+            Arrays.fill(sums, 0, nodeCount, 0);
+            Arrays.fill(activated, 0, nodeCount, false);
+        }
+        double[] values = this.values;
+        double[] sums = this.sums;
+        boolean[] activated = this.activated;
+
+        // Assign the input values
+        for(int i = 0; i < nodeCount; i++)
+        {
+            if(getNodeType(i) == Type.INPUT.ordinal())
+            {
+                values[i] = precision.round(input[getNodeID(i)]);
+                activated[i] = true;
+            }
+        }
+
+        // Go through the connections and assign the values
+        int planCount = getPlanCount();
+        for(int p = 0; p < planCount; p++)
+        {
+            int position = genePosition(getPlanEntry(p));
+            int in = arena.getInt(position + 4);
+            if(!activated[in])
+            {
+                values[in] = activate(sums[in]);
+                activated[in] = true;
+            }
+
+            sums[arena.getInt(position + 8)] += precision.round(
+                    values[in] * readWeight(position));
+        }
+
+        // Get the values in the output
+        double[] output = new double[population.outputs];
+        for(int i = 0; i < nodeCount; i++)
+        {
+            if(getNodeType(i) == Type.OUTPUT.ordinal())
+            {
+                output[getNodeID(i) - population.inputs] =
+                        activated[i] ? values[i] : activate(sums[i]);
+            }
+        }
+
+        return output;
+    }
+
+    /**
+     * Activation function of the genome, identical to the one of a
+     * CompactGenome
+     * @param x Summed input of the node
+     * @return Returns the activated value in the precision of the NEAT instance
+     */
+    double activate(double x)
+    {
+        NEAT reference = population.reference;
+        return reference.PRECISION.round(
+                getActivation().apply(x, reference.SIGMOID_MODIFIER));
+    }
+
+    /**
+     * @return Returns the activation function of the genome
+     */
+    Activation getActivation()
+    {
+        return Activation.VALUES[arena.getInt(base + OffHeapPopulation.ACTIVATION)];
+    }
+
+    /**
+     * Copies the genome onto the heap, e.g. to mutate it
+     * @return Returns the genome as a CompactGenome
+     */
+    public CompactGenome toGenome()
+    {
+        int nodeCount = getNodeCount();
+        int geneCount = getGeneCount();
+        CompactGenome genome = new CompactGenome(
+                population.reference, population.inputs, population.outputs,
+                nodeCount, geneCount);
+        genome.fitness = getFitness();
+        genome.activation = getActivation();
+
+        for(int i = 0; i < nodeCount; i++) {
+            genome.nodeIDs[i] = getNodeID(i);
+            genome.nodeTypes[i] = (byte) getNodeType(i);
+            genome.layerNumbers[i] = getLayerNumber(i);
+        }
+
+        for(int i = 0; i < geneCount; i++) {
+            genome.innovations[i] = getInnovation(i);
+            genome.inNodes[i] = getNodeID(getInSlot(i));
+            genome.outNodes[i] = getNodeID(getOutSlot(i));
+            genome.setWeight(i, getWeight(i));
+            genome.enabled.set(i, isEnabled(i));
+        }
+
+        return genome;
+    }
+}
@@ -0,0 +1,232 @@
+package NEATLib;
+
+import java.util.Arrays;
+
+import NEATLib.NEATNetwork.Type;
+
+/**
+ * Evaluates a whole generation in lockstep for tasks in which every network
+ * sees the same input rows. The phenotypes of all networks are packed one
+ * after another into a few contiguous arrays, with the nodes of every network
+ * in processing order and networks of similar topology next to each other.
+ * Processing a row is then a single linear pass over these arrays instead of
+ * a separate walk through every network.
+ *
+ * Delayed edges lead into a carry slot behind the nodes, whose value is
+ * handed to the real target at the start of the next row. The evaluator
+ * carries these values itself, starting from the ones the networks hold
+ * when they are packed, and leaves the networks untouched.
+ *
+ * The packing is a snapshot of the generation, create a new evaluator after
+ * every call of NEAT.advanceGeneration.
+ */
+public class LockstepEvaluator
+{
+    // Reference to the NEAT instance
+    NEAT reference;
+    // Amount of networks
+    int networks;
+    // Input index of the bias node, -1 if no bias is used
+    int biasIndex;
+    // Amount of output values per network
+    int outputs;
+
+    //// NODES OF ALL NETWORKS, in processing order
+    // Amount of nodes
+    int nodeCount;
+    // Type ordinal of every node
+    byte[] nodeTypes;
+    // Input index of input nodes, position in the flat result of output nodes
+    int[] nodeIndices;
+    // Activation function of every node
+    Activation[] nodeActivations;
+    // End of the outgoing edges of every node, they start at the end of the
+    // previous node
+    int[] edgeEnds;
+
+    //// EDGES OF ALL NETWORKS, grouped by input node
+    // Node the edge leads to
+    int[] edgeTargets;
+    // Weight of the edge
+    double[] weights;
+
+    //// DELAYED EDGES OF ALL NETWORKS, each with a carry slot in the sums
+    // behind the nodes
+    // Node the value of a carry slot is handed to in the next row
+    int[] delayedTargets;
+
+    // Sums of the nodes while a row is processed, followed by the carry slots
+    double[] sums;
+    // Outputs of all networks while a row is processed
+    double[] results;
+
+    // *STRUCTORS --------------------------------------------------------------
+
+    /**
+     * Packs the networks of the current generation
+     * @param neat The NEAT instance holding the networks
+     */
+    public LockstepEvaluator(NEAT neat)
+    {
+        reference = neat;
+        networks = neat.getNetworkCount();
+        biasIndex = neat.USES_BIAS ? neat.inputCount : -1;
+        outputs = neat.outputCount;
+
+        Phenotype[] phenotypes = new Phenotype[networks];
+        Integer[] grouped = new Integer[networks];
+        // Amount of nodes and enabled edges of every network
+        long[] shapes = new long[networks];
+        int edgeCount = 0;
+        int delayedCount = 0;
+        for(int i = 0; i < networks; i++) {
+            NEATNetwork network = neat.getNetwork(i);
+            network.compile();
+            phenotypes[i] = network.phenotype;
+            grouped[i] = i;
+
+            int linked = countLinked(phenotypes[i]);
+            shapes[i] = ((long) phenotypes[i].nodeCount << 32) | linked;
+            nodeCount += phenotypes[i].nodeCount;
+            edgeCount += linked;
+            delayedCount += phenotypes[i].delayedCount;
+        }
+
+        // Put networks of the same shape and activation next to each other
+        Arrays.sort(grouped, (Integer a, Integer b) -> shapes[a] != shapes[b]
+                ? Long.compare(shapes[a], shapes[b])
+                : phenotypes[a].activation.compareTo(phenotypes[b].activation));
+
+        nodeTypes = new byte[nodeCount];
+        nodeIndices = new int[nodeCount];
+        nodeActivations = new Activation[nodeCount];
+        edgeEnds = new int[nodeCount];
+        edgeTargets = new int[edgeCount];
+        weights = new double[edgeCount];
+        delayedTargets = new int[delayedCount];
+        sums = new double[nodeCount + delayedCount];
+
+        int node = 0;
+        int edge = 0;
+        int carry = 0;
+        for(int index : grouped) {
+            Phenotype p = phenotypes[index];
+
+            for(int position = 0; position < p.nodeCount; position++) {
+                int slot = p.order[position];
+                nodeTypes[node] = p.nodeTypes[slot];
+                nodeActivations[node] = p.activation;
+                nodeIndices[node] = p.nodeTypes[slot] == Type.OUTPUT.ordinal()
+                        ? index * outputs + p.nodeIndices[slot]
+                        : p.nodeIndices[slot];
+
+                for(int e = p.firstOut[slot]; e >= 0; e = p.nextOut[e]) {
+                    // Nodes of a network are packed in processing order
+                    int target = node - position + p.positions[p.edgeOut[e]];
+                    if(p.delayed[e]) {
+                        delayedTargets[carry] = target;
+                        sums[nodeCount + carry] = p.carried[e];
+                        target = nodeCount + carry++;
+                    }
+                    edgeTargets[edge] = target;
+                    weights[edge] = p.getWeight(e);
+                    edge++;
+                }
+
+                edgeEnds[node] = edge;
+                node++;
+            }
+        }
+
+        results = new double[networks * outputs];
+    }
+
+    // METHODS -----------------------------------------------------------------
+
+    /**
+     * @param p A phenotype
+     * @return Returns the amount of enabled edges of the phenotype
+     */
+    static int countLinked(Phenotype p)
+    {
+        int count = 0;
+        for(int e = 0; e < p.edgeCount; e++) {
+            if(p.linked[e]) {count++;}
+        }
+        return count;
+    }
+
+    /**
+     * Processes a single row with every network. Adds the bias input if one
+     * is used.
+     * @param input Array of input values, without the bias
+     * @param output Matrix receiving the outputs, one row per network in the
+     * order of the NEAT instance
+     */
+    public void process(double[] input, double[][] output)
+    {
+        Precision precision = reference.PRECISION;
+        boolean isRounded = precision != Precision.DOUBLE;
+        double modifier = reference.SIGMOID_MODIFIER;
+        double[] sums = this.sums;
+        Arrays.fill(sums, 0, nodeCount, 0.0);
+
+        // Hand the values of the delayed edges to their targets
+        for(int k = 0; k < delayedTargets.length; k++) {
+            sums[delayedTargets[k]] += sums[nodeCount + k];
+            sums[nodeCount + k] = 0;
+        }
+
+        int edge = 0;
+        for(int n = 0; n < nodeCount; n++) {
+            double value;
+
+            if(nodeTypes[n] == Type.INPUT.ordinal()) {
+                value = nodeIndices[n] == biasIndex ? 1.0 : input[nodeIndices[n]];
+            } else {
+                value = nodeActivations[n].apply(sums[n], modifier);
+
+                if(nodeTypes[n] == Type.OUTPUT.ordinal()) {
+                    results[nodeIndices[n]] = isRounded ? precision.round(value) : value;
+                }
+            }
+
+            int end = edgeEnds[n];
+            if(isRounded) {
+                value = precision.round(value);
+                for(; edge < end; edge++) {
+                    sums[edgeTargets[edge]] += precision.round(value * precision.round(weights[edge]));
+                }
+            } else {
+                for(; edge < end; edge++) {
+                    sums[edgeTargets[edge]] += value * weights[edge];
+                }
+            }
+        }
+
+        for(int i = 0; i < networks; i++) {
+            System.arraycopy(results, i * outputs, output[i], 0, outputs);
+        }
+    }
+
+    /**
+     * Processes a single row with every network
+     * @param input Array of input values, without the bias
+     * @return Returns a matrix with one row of outputs per network in the
+     * order of the NEAT instance
+     */
+    public double[][] process(double[] input)
+    {
+        double[][] output = new double[networks][outputs];
+        process(input, output);
+        return output;
+    }
+
+    /**
+     * @return Returns the amount of networks packed
+     */
+    public int getNetworkCount()
+    {
+        return networks;
+    }
+}
@@ -1,10 +1,12 @@
 package NEATLib;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.Random;
 
 public class NEAT
 {
@@ -31,6 +33,14 @@ public class NEAT
     boolean DOES_CARRY_OVER_INNOVATIONS = true;
     // Whether or not species are made anew every generation
     boolean DOES_CARRY_OVER_SPECIES = false;
+    // Amount of specimen drawn for every parent selection, the fittest wins
+    int TOURNAMENT_SIZE = 3;
+    // Whether or not dead structure is stripped from the genomes periodically
+    boolean DOES_COMPACT_GENOMES = false;
+    // Amount of generations between two compactions
+    int COMPACTION_INTERVAL = 10;
+    // Amount of generations after which a disabled connection is removed
+    int COMPACTION_AGE = 20;
     
     //// MUTATION PARAMETERS
     // Probability of adding a new connection
@@ -47,12 +57,25 @@ public class NEAT
     double RANDOM_WEIGHT_RANGE = 5.0;
     // Whether or not recurrent connections are permissible
     boolean DOES_ALLOW_RECURRENT = false;
+    /* Whether or not splitting the same connection yields the same node ID in
+     * every network */
+    boolean DOES_TRACK_SPLITS = true;
+    // Probability of switching a network to a random activation function
+    double PROP_ACTIVATION = 0;
     
     //// PROCESSING PARAMETER
     // The Sigmoid modifier to tune the sigmoid activation
     double SIGMOID_MODIFIER = 4.9;
     // Whether or not a bias node is used
     boolean USES_BIAS = false;
+    // Activation function of the networks of a new run
+    Activation ACTIVATION = Activation.SIGMOID;
+    // Precision of the weights and values during evolution and processing
+    Precision PRECISION = Precision.DOUBLE;
+    
+    //// RANDOMNESS
+    // Source of all random decisions of the run
+    Random random = new Random();
     
     
     // List of all specimen in a generation
@@ -63,8 +86,29 @@ public class NEAT
     List<List<NEATNetwork>> speciesList = new ArrayList<List<NEATNetwork>>();
     // List of Champion of each species
     List<NEATNetwork> championList = new ArrayList<NEATNetwork>();
+    // Summaries of the champions to speed up speciation
+    ChampionIndex championIndex = new ChampionIndex(this);
+    // Networks of previous generations ready to be reused
+    GenomePool pool;
+    // Planner of the offspring of every species
+    ReproductionPlanner planner = new ReproductionPlanner(this);
     // Track the innovation number
     int innovationNumber = 0;
+    /* ID of the node added by splitting a connection, by innovation number of
+     * the connection in the upper and occurrence of the split within a 
+     * genome in the lower 32 bits */
+    Map<Long,Integer> splitInnovations = new HashMap<Long,Integer>();
+    // Next unused node ID
+    int nextNodeID;
+    // Amount of species found in the last speciation
+    int speciesCount = 0;
+    // Number of the current generation, counted from 0
+    int generation = 0;
+    // Recorder of the statistics of every generation, may be null
+    StatsRecorder statsRecorder;
+    // Connection and node genes removed by the compaction of this generation
+    long compactedGenes = 0;
+    long compactedNodes = 0;
     // Amount of networks in any given generation
     int networkCount;
     // Amount of input nodes in a network
@@ -83,9 +127,29 @@ public class NEAT
      */
     public NEAT(int inNodes, int outNodes,int networks)
     {
+        this(inNodes, outNodes, networks, null);
+    }
+    
+    /**
+     * Constructor for a new NEAT run with the given parameters. Runs with the 
+     * same parameters and seed evolve the same way.
+     * @param inNodes Amount of input nodes
+     * @param outNodes Amount of output nodes
+     * @param networks Amount of simultaneous networks
+     * @param config Parameters of the run, null for the defaults
+     */
+    public NEAT(int inNodes, int outNodes, int networks, NEATConfig config)
+    {
+        if(config != null)
+        {
+            config.applyTo(this);
+        }
+        
         networkCount = networks;
         inputCount = inNodes;
         outputCount = outNodes;
+        nextNodeID = inNodes + (USES_BIAS ? 1 : 0) + outNodes;
+        pool = new GenomePool(2 * networks);
         
         for(int i = 0; i < networks; i++)
         {
@@ -96,10 +160,9 @@ public class NEAT
     
     // METHODS -----------------------------------------------------------------
     
-    // TODO: Allow to extract network
-    
     /**
-     * Add the fitness to a specified net
+     * Add the fitness to a specified net. May be called from several threads
+     * at once, also for the same net.
      * @param value Fitness value to be added
      * @param index index of the network in the "nets"-list
      */ 
@@ -108,6 +171,118 @@ public class NEAT
         nets.get(index).addFitness(value);
     }
     
+    /**
+     * Adds the fitness accumulated by all threads to the networks
+     */
+    void collectFitness()
+    {
+        for(NEATNetwork specimen : nets)
+        {
+            specimen.collectFitness();
+        }
+    }
+    
+    /**
+     * @return Returns the amount of networks in the current generation
+     */
+    public int getNetworkCount()
+    {
+        return nets.size();
+    }
+    
+    /**
+     * Sets the precision used for the weights and values of all networks. 
+     * Weights are rounded to the new precision the next time they mutate,
+     * compiled networks store them in the new precision the next time they 
+     * are processed.
+     * @param precision The new precision
+     */
+    public void setPrecision(Precision precision)
+    {
+        PRECISION = precision;
+    }
+    
+    /**
+     * Returns a network of the current generation. The network is reused for
+     * another generation once the generation has advanced, keep a copy if it
+     * is needed for longer.
+     * @param index Index of the network in the "nets"-list
+     * @return Returns the network
+     */
+    public NEATNetwork getNetwork(int index)
+    {
+        return nets.get(index);
+    }
+    
+    /**
+     * Returns the pool holding the networks of previous generations for reuse
+     * @return Returns the genome pool
+     */
+    public GenomePool getGenomePool()
+    {
+        return pool;
+    }
+    
+    /**
+     * Returns the index used to find the species of a specimen, e.g. to read
+     * its pruning rate
+     * @return Returns the champion index
+     */
+    public ChampionIndex getChampionIndex()
+    {
+        return championIndex;
+    }
+    
+    /**
+     * Records the statistics of every following generation. The recorder is
+     * neither started nor closed by the NEAT instance.
+     * @param recorder The recorder, null to stop recording
+     */
+    public void setStatsRecorder(StatsRecorder recorder)
+    {
+        statsRecorder = recorder;
+    }
+    
+    /**
+     * @return Returns the number of the current generation, counted from 0
+     */
+    public int getGeneration()
+    {
+        return generation;
+    }
+    
+    /**
+     * Returns the fittest network of the current generation
+     * @return Returns the network with the highest fitness
+     */
+    public NEATNetwork getChampion()
+    {
+        collectFitness();
+        
+        NEATNetwork champion = nets.get(0);
+        
+        for(NEATNetwork specimen : nets)
+        {
+            if(specimen.fitness > champion.fitness)
+            {
+                champion = specimen;
+            }
+        }
+        
+        return champion;
+    }
+    
+    /**
+     * Exports the fittest network of the current generation with quantised
+     * weights for deployment
+     * @param bits Bits per weight, either 8 or 16
+     * @return Returns the quantised copy of the champion
+     */
+    public QuantizedNetwork exportChampion(int bits)
+    {
+        return new QuantizedNetwork(getChampion(), bits);
+    }
+    
     /**
      * Tries to add a new innovation. If the innovation already existed return
      * index + 1 as innovation number. Else return the new innovation number.
@@ -132,11 +307,70 @@ public class NEAT
         return innovationNumber;
     }
     
+    /**
+     * Returns the ID of the node added by splitting a connection. The first
+     * split of a connection gets a new ID, every later split of the same
+     * connection in any network gets the same one. A connection split again
+     * within the same genome, e.g. after it has been re-enabled, counts as
+     * another occurrence, which is registered the same way.
+     * @param innovation Innovation number of the split connection
+     * @param occurrence Amount of earlier splits of the connection within 
+     * the genome
+     * @return Returns the ID of the new node
+     */
+    int addSplit(int innovation, int occurrence)
+    {
+        long key = ((long) innovation << 32) | occurrence;
+        Integer nodeID = splitInnovations.get(key);
+        
+        if(nodeID == null)
+        {
+            nodeID = nextNodeID++;
+            splitInnovations.put(key, nodeID);
+        }
+        
+        return nodeID;
+    }
+    
+    /**
+     * @return Returns the amount of different splits registered so far
+     */
+    public int getSplitCount()
+    {
+        return splitInnovations.size();
+    }
+    
+    /**
+     * @return Returns the amount of species found in the last speciation
+     */
+    public int getSpeciesCount()
+    {
+        return speciesCount;
+    }
+    
+    /**
+     * @return Returns the average amount of connection genes of the networks
+     * of the current generation
+     */
+    public double getMeanGenomeSize()
+    {
+        long genes = 0;
+        
+        for(NEATNetwork specimen : nets)
+        {
+            genes += specimen.connections.size();
+        }
+        
+        return nets.isEmpty() ? 0 : (double) genes / nets.size();
+    }
+    
     /**
      * Advances the nets into the next generation
      */
     public void advanceGeneration()
     {
+        collectFitness();
+        
         // Sort list for fitness
         Collections.sort(nets, (NEATNetwork a, NEATNetwork b) -> 
         {
@@ -147,141 +381,79 @@ public class NEAT
         for(NEATNetwork specimen : nets)
         {
             // Check every species for affiliation
-            boolean hasFoundSpecies = false;
-            for(int i = 0; i < championList.size(); i++)
+            int species = championIndex.findSpecies(championList, specimen);
+            
+            // If the network fits a species add it to it.
+            if(species >= 0)
             {
-                // If the network fits a species add it to it.
-                if(championList.get(i).compareCompatibility(specimen, WEIGHT_C1, WEIGHT_C2, WEIGHT_C3) < MAX_DELTA)
-                {
-                    speciesList.get(i).add(specimen);
-                    hasFoundSpecies = true;
-                    break;
-                }
+                speciesList.get(species).add(specimen);
             }
-
             // If no species has been found establish a new one.
-            if(!hasFoundSpecies)
+            else
             {
                 List<NEATNetwork> newSpecies = new ArrayList<>();
                 newSpecies.add(specimen);
-                championList.add(new NEATNetwork(specimen));
+                NEATNetwork champion = pool.copyOf(specimen);
+                championList.add(champion);
+                championIndex.add(champion);
                 speciesList.add(newSpecies);
             }
         }
         
-        // Clear the network list but retain the best one
-        NEATNetwork generationChampion = new NEATNetwork(nets.get(0));
-        nets.clear();
-        nets.add(generationChampion);
-        
-        // Calculate the amount for each species
-        Map<Integer,Double> fitnesses = new TreeMap<Integer,Double>();
-        fitnesses.put(-1, 0.0);
-        for(int i = 0; i < speciesList.size(); i++) 
+        speciesCount = 0;
+        for(List<NEATNetwork> species : speciesList)
         {
-        	if(speciesList.get(i).size() == 0) 
-        	{
-        		continue;
-        	}
-        	fitnesses.put(i, 0.0);
-        	
-        	for(NEATNetwork specimen : speciesList.get(i)) 
-        	{
-        		fitnesses.put(i, fitnesses.get(i) + specimen.fitness);
-        	}
-        	
-        	fitnesses.put(i, fitnesses.get(i) / speciesList.get(i).size());
-        	fitnesses.put(-1, fitnesses.get(i) + fitnesses.get(-1));
+            if(!species.isEmpty()) {speciesCount++;}
         }
         
-        for(int i = 0; i < speciesList.size(); i++) {
-        	if(speciesList.get(i).size() == 0) {
-        		continue;
-        	}
-        	fitnesses.put(i, (fitnesses.get(i) * (networkCount - 1)) / fitnesses.get(-1));
-        }
-        
-        int remainingSpecies = -1;
-        
-        for(int i = 0; i < speciesList.size(); i++)
+        if(statsRecorder != null)
         {
-        	if(speciesList.get(i).size() > 0) 
-        	{
-        		remainingSpecies++;
-        	}
+            statsRecorder.record(this, generation, nets, speciesList);
         }
         
-        Map<Integer,Long> amounts = new TreeMap<Integer,Long>();
+        // Clear the network list but retain the best one
+        NEATNetwork generationChampion = pool.copyOf(nets.get(0));
+        nets.clear();
+        nets.add(generationChampion);
         
-        for(int i = 0; i < speciesList.size(); i++) 
-        {
-        	if(speciesList.get(i).size() == 0) 
-        	{
-        		continue;
-        	}
-        	
-        	amounts.put(i, Math.round(fitnesses.get(i)));
-        	double adjusment = (fitnesses.get(i) - Math.round(fitnesses.get(i))) / remainingSpecies;
-        	
-        	for(int j = i + 1; j < speciesList.size(); j++) 
-        	{
-        		if( speciesList.get(j).size() == 0) 
-        		{
-        			continue;
-        		}
-        		fitnesses.put(j, fitnesses.get(j) + adjusment);
-        	}
-        	
-        	remainingSpecies--;
-        }
+        // Split the remaining slots among the species
+        int[] amounts = planner.plan(speciesList, networkCount - 1);
         
         // Carry over the champion if the species is big enough
         for(int i = 0; i < speciesList.size(); i++) {
-        	if(speciesList.get(i).size() >= CHAMPION_THRESHOLD && amounts.get(i) >= 1) {
-        		nets.add(new NEATNetwork(speciesList.get(i).get(0)));
-        		amounts.put(i, amounts.get(i) - 1);
+        	if(speciesList.get(i).size() >= CHAMPION_THRESHOLD && amounts[i] >= 1) {
+        		nets.add(pool.copyOf(speciesList.get(i).get(0)));
+        		amounts[i]--;
         	}
         }
         
         for(int i = 0; i < speciesList.size(); i++) {
-        	if(speciesList.get(i).size() == 0) {continue;}
-        	 
-        	if(amounts.get(i) == 0) {continue;}
+        	List<NEATNetwork> species = speciesList.get(i);
+        	int size = species.size();
         	
-        	if(amounts.get(i) == 1) {
-        		speciesList.get(i).get(0).mutate();
-        		nets.add(new NEATNetwork(speciesList.get(i).get(0)));
+        	if(amounts[i] == 0) {continue;}
+        	
+        	if(amounts[i] == 1) {
+        		NEATNetwork mutated = pool.copyOf(species.get(0));
+        		mutated.mutate();
+        		nets.add(mutated);
         		continue;
         	}
         	
         	// Mate until the portion of offspring through mating is reached
-        	long mateAmount = Math.round(amounts.get(i) * (1 - PORTION_MUTATION));
-        	if(mateAmount != 0 && speciesList.get(i).size() > 1) {
-        		amounts.put(i, amounts.get(i) - mateAmount);
-        		while(mateAmount > 0) {
-        			for(int j = 1; j < speciesList.get(i).size(); j++) {
-        				for(int k = 0; k < j; k++) {
-        					nets.add(speciesList.get(i).get(0).mate(speciesList.get(i).get(j), speciesList.get(i).get(k)));
-        					mateAmount--;
-        					if(mateAmount == 0) {break;}
-        				}
-        		
-        				if(mateAmount == 0) {break;}
-        			}
-        		}
+        	int mateAmount = size > 1 ? (int) Math.round(amounts[i] * (1 - PORTION_MUTATION)) : 0;
+        	for(int m = 0; m < mateAmount; m++) {
+        		int a = planner.selectParent(size);
+        		int b = planner.selectMate(size, a);
+        		nets.add(species.get(0).mate(species.get(a), species.get(b), pool));
         	}
         	
         	// Add mutated copies to fill the rest of the species to the next 
         	// generation
-        	while(amounts.get(i) > 0) {
-        		for(int j = 0; j < speciesList.get(i).size(); j++) {
-        			NEATNetwork mutated = new NEATNetwork(speciesList.get(i).get(j));
-        			mutated.mutate();
-        			nets.add(mutated);
-        			amounts.put(i, amounts.get(i) - 1);
-        			
-        			if(amounts.get(i) == 0) {break;}
-        		}
+        	for(int m = mateAmount; m < amounts[i]; m++) {
+        		NEATNetwork mutated = pool.copyOf(species.get(planner.selectParent(size)));
+        		mutated.mutate();
+        		nets.add(mutated);
         	}
         }
         
@@ -291,18 +463,90 @@ public class NEAT
         	nets.add(new NEATNetwork(inputCount, outputCount, this));
         }
         
+        // Hand the previous generation back to the pool for the next one
         for(int i = 0; i < speciesList.size(); i++) {
+        	pool.releaseAll(speciesList.get(i));
         	speciesList.get(i).clear();
         }
         
         if(!DOES_CARRY_OVER_INNOVATIONS) {
         	innovations.clear();
+        	splitInnovations.clear();
         }
         
         if(!DOES_CARRY_OVER_SPECIES) {
+        	pool.releaseAll(championList);
         	speciesList.clear();
         	championList.clear();
+        	championIndex.clear();
+        }
+        
+        compactedGenes = 0;
+        compactedNodes = 0;
+        // Compact after every full interval of generations
+        if(DOES_COMPACT_GENOMES && (generation + 1) % Math.max(1, COMPACTION_INTERVAL) == 0) {
+        	compactGenomes();
         }
+        
+        generation++;
+    }
+    
+    /**
+     * Strips dead structure from the networks of the new generation and from 
+     * the champions, if they are carried over
+     */
+    void compactGenomes()
+    {
+    	for(NEATNetwork specimen : nets) {
+    		compact(specimen);
+    	}
+    	
+    	if(DOES_CARRY_OVER_SPECIES) {
+    		championIndex.clear();
+    		for(NEATNetwork champion : championList) {
+    			compact(champion);
+    			championIndex.add(champion);
+    		}
+    	}
+    }
+    
+    /**
+     * Compacts a single network and counts the removed genes
+     * @param network The network to be compacted
+     */
+    void compact(NEATNetwork network)
+    {
+    	int nodes = network.nodes.size();
+    	compactedGenes += network.compact(generation, COMPACTION_AGE);
+    	compactedNodes += nodes - network.nodes.size();
+    }
+    
+    /**
+     * @return Returns the amount of connection genes removed by the 
+     * compaction during the last advancement of the generation
+     */
+    public long getCompactedGeneCount()
+    {
+    	return compactedGenes;
+    }
+    
+    /**
+     * @return Returns the amount of hidden nodes removed by the compaction 
+     * during the last advancement of the generation
+     */
+    public long getCompactedNodeCount()
+    {
+    	return compactedNodes;
+    }
+    
+    /**
+     * @return Returns the estimated amount of heap memory in bytes reclaimed 
+     * by the compaction during the last advancement of the generation
+     */
+    public long getCompactedBytes()
+    {
+    	return compactedGenes * NEATNetwork.CONNECTION_BYTES 
+    			+ compactedNodes * NEATNetwork.NODE_BYTES;
     }
     
     /**
@@ -311,6 +555,8 @@ public class NEAT
      */
     public double getMaxFitness()
     {
+        collectFitness();
+        
         double maxFitness = Double.NEGATIVE_INFINITY;
         
         for(NEATNetwork specimen : nets)
@@ -332,6 +578,18 @@ public class NEAT
      * @return Returns an array the output value. 
      */
     public double[] processNetwork(double[] inputs,int index)
+    {   
+        return processNetwork(inputs, nets.get(index));
+    }
+    
+    /**
+     * Tells a network to process the given inputs and return the result. Adds
+     * the bias input if one is used.
+     * @param inputs Array of double values to be used in the input nodes.
+     * @param network The network to process the inputs
+     * @return Returns an array the output value. 
+     */
+    public double[] processNetwork(double[] inputs, NEATNetwork network)
     {   
     	if(USES_BIAS) {
     		double[] inputsBiased = new double[inputs.length + 1];
@@ -340,10 +598,34 @@ public class NEAT
     		}
     		
     		inputsBiased[inputs.length] = 1.0;
-    		return nets.get(index).process(inputsBiased);
+    		return network.process(inputsBiased);
     	}
     	
-        return nets.get(index).process(inputs);
+        return network.process(inputs);
+    }
+    
+    /**
+     * Tells a network to process a batch of input rows at once and return the
+     * results. Adds the bias input if one is used.
+     * @param inputs Array of input columns, each holding a value per row
+     * @param batch Amount of rows
+     * @param index Index of the network in the "nets"-list
+     * @return Returns an array of output columns, each holding a value per row
+     */
+    public double[][] processNetworkBatch(double[][] inputs, int batch, int index)
+    {
+        if(USES_BIAS) {
+            double[][] inputsBiased = new double[inputs.length + 1][];
+            for(int i = 0; i < inputs.length; i++) {
+                inputsBiased[i] = inputs[i];
+            }
+            
+            inputsBiased[inputs.length] = new double[batch];
+            Arrays.fill(inputsBiased[inputs.length], 1.0);
+            return nets.get(index).processBatch(inputsBiased, batch);
+        }
+        
+        return nets.get(index).processBatch(inputs, batch);
     }
     
     /**
@@ -353,7 +635,7 @@ public class NEAT
     {
         for(NEATNetwork specimen : nets)
         {
-            specimen.fitness = 0.0;
+            specimen.resetFitness();
         }
     }
     
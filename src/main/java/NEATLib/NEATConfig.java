@@ -0,0 +1,165 @@
+package NEATLib;
+
+import java.util.Random;
+
+/**
+ * Parameters of a NEAT run. Holds the same defaults as a NEAT instance, see
+ * there for the meaning of every parameter. A configuration is only read
+ * when a NEAT instance is created, so it may be changed and reused
+ * afterwards.
+ */
+public class NEATConfig
+{
+    //// SPECIATION PARAMETERS
+    public double MAX_DELTA = 3;
+    public double WEIGHT_C1 = 1.0;
+    public double WEIGHT_C2 = 1.0;
+    public double WEIGHT_C3 = .4;
+    public int SMALL_GENOME_CUTOFF = 0;
+
+    //// GENERATION ADVANCEMENT PARAMETERS
+    public int CHAMPION_THRESHOLD = 5;
+    public double PORTION_MUTATION = .25;
+    public boolean DOES_CARRY_OVER_INNOVATIONS = true;
+    public boolean DOES_CARRY_OVER_SPECIES = false;
+    public int TOURNAMENT_SIZE = 3;
+    public boolean DOES_COMPACT_GENOMES = false;
+    public int COMPACTION_INTERVAL = 10;
+    public int COMPACTION_AGE = 20;
+
+    //// MUTATION PARAMETERS
+    public double PROP_CONNECTION = .5;
+    public double PROP_KEEP_DISABLED = .75;
+    public double PROP_NODE = .5;
+    public double PROP_WEIGHT = .8;
+    public double PROP_WEIGHT_UNIFORM = .9;
+    public double RANDOM_WEIGHT_RANGE = 5.0;
+    public boolean DOES_ALLOW_RECURRENT = false;
+    public boolean DOES_TRACK_SPLITS = true;
+    public double PROP_ACTIVATION = 0;
+
+    //// PROCESSING PARAMETER
+    public double SIGMOID_MODIFIER = 4.9;
+    public boolean USES_BIAS = false;
+    public Activation ACTIVATION = Activation.SIGMOID;
+    public Precision PRECISION = Precision.DOUBLE;
+
+    //// RANDOMNESS
+    // Seed of the random numbers of the run, random unless set
+    public long SEED = new Random().nextLong();
+
+    // *STRUCTORS --------------------------------------------------------------
+
+    /**
+     * Constructor for a configuration with the default parameters
+     */
+    public NEATConfig()
+    {
+    }
+
+    /**
+     * Constructor to return a copy of the provided configuration
+     * @param old The configuration to be copied
+     */
+    public NEATConfig(NEATConfig old)
+    {
+        MAX_DELTA = old.MAX_DELTA;
+        WEIGHT_C1 = old.WEIGHT_C1;
+        WEIGHT_C2 = old.WEIGHT_C2;
+        WEIGHT_C3 = old.WEIGHT_C3;
+        SMALL_GENOME_CUTOFF = old.SMALL_GENOME_CUTOFF;
+        CHAMPION_THRESHOLD = old.CHAMPION_THRESHOLD;
+        PORTION_MUTATION = old.PORTION_MUTATION;
+        DOES_CARRY_OVER_INNOVATIONS = old.DOES_CARRY_OVER_INNOVATIONS;
+        DOES_CARRY_OVER_SPECIES = old.DOES_CARRY_OVER_SPECIES;
+        TOURNAMENT_SIZE = old.TOURNAMENT_SIZE;
+        DOES_COMPACT_GENOMES = old.DOES_COMPACT_GENOMES;
+        COMPACTION_INTERVAL = old.COMPACTION_INTERVAL;
+        COMPACTION_AGE = old.COMPACTION_AGE;
+        PROP_CONNECTION = old.PROP_CONNECTION;
+        PROP_KEEP_DISABLED = old.PROP_KEEP_DISABLED;
+        PROP_NODE = old.PROP_NODE;
+        PROP_WEIGHT = old.PROP_WEIGHT;
+        PROP_WEIGHT_UNIFORM = old.PROP_WEIGHT_UNIFORM;
+        RANDOM_WEIGHT_RANGE = old.RANDOM_WEIGHT_RANGE;
+        DOES_ALLOW_RECURRENT = old.DOES_ALLOW_RECURRENT;
+        DOES_TRACK_SPLITS = old.DOES_TRACK_SPLITS;
+        PROP_ACTIVATION = old.PROP_ACTIVATION;
+        SIGMOID_MODIFIER = old.SIGMOID_MODIFIER;
+        USES_BIAS = old.USES_BIAS;
+        ACTIVATION = old.ACTIVATION;
+        PRECISION = old.PRECISION;
+        SEED = old.SEED;
+    }
+
+    // METHODS -----------------------------------------------------------------
+
+    /**
+     * Writes the parameters into a NEAT instance
+     * @param neat The instance to be configured
+     */
+    void applyTo(NEAT neat)
+    {
+        neat.MAX_DELTA = MAX_DELTA;
+        neat.WEIGHT_C1 = WEIGHT_C1;
+        neat.WEIGHT_C2 = WEIGHT_C2;
+        neat.WEIGHT_C3 = WEIGHT_C3;
+        neat.SMALL_GENOME_CUTOFF = SMALL_GENOME_CUTOFF;
+        neat.CHAMPION_THRESHOLD = CHAMPION_THRESHOLD;
+        neat.PORTION_MUTATION = PORTION_MUTATION;
+        neat.DOES_CARRY_OVER_INNOVATIONS = DOES_CARRY_OVER_INNOVATIONS;
+        neat.DOES_CARRY_OVER_SPECIES = DOES_CARRY_OVER_SPECIES;
+        neat.TOURNAMENT_SIZE = TOURNAMENT_SIZE;
+        neat.DOES_COMPACT_GENOMES = DOES_COMPACT_GENOMES;
+        neat.COMPACTION_INTERVAL = COMPACTION_INTERVAL;
+        neat.COMPACTION_AGE = COMPACTION_AGE;
+        neat.PROP_CONNECTION = PROP_CONNECTION;
+        neat.PROP_KEEP_DISABLED = PROP_KEEP_DISABLED;
+        neat.PROP_NODE = PROP_NODE;
+        neat.PROP_WEIGHT = PROP_WEIGHT;
+        neat.PROP_WEIGHT_UNIFORM = PROP_WEIGHT_UNIFORM;
+        neat.RANDOM_WEIGHT_RANGE = RANDOM_WEIGHT_RANGE;
+        neat.DOES_ALLOW_RECURRENT = DOES_ALLOW_RECURRENT;
+        neat.DOES_TRACK_SPLITS = DOES_TRACK_SPLITS;
+        neat.PROP_ACTIVATION = PROP_ACTIVATION;
+        neat.SIGMOID_MODIFIER = SIGMOID_MODIFIER;
+        neat.USES_BIAS = USES_BIAS;
+        neat.ACTIVATION = ACTIVATION;
+        neat.PRECISION = PRECISION;
+        neat.random.setSeed(SEED);
+    }
+
+    /**
+     * @return Returns the parameters in a single line, e.g. for a ranking
+     */
+    @Override
+    public String toString()
+    {
+        return "MAX_DELTA=" + MAX_DELTA
+                + " WEIGHT_C1=" + WEIGHT_C1
+                + " WEIGHT_C2=" + WEIGHT_C2
+                + " WEIGHT_C3=" + WEIGHT_C3
+                + " SMALL_GENOME_CUTOFF=" + SMALL_GENOME_CUTOFF
+                + " CHAMPION_THRESHOLD=" + CHAMPION_THRESHOLD
+                + " PORTION_MUTATION=" + PORTION_MUTATION
+                + " DOES_CARRY_OVER_INNOVATIONS=" + DOES_CARRY_OVER_INNOVATIONS
+                + " DOES_CARRY_OVER_SPECIES=" + DOES_CARRY_OVER_SPECIES
+                + " TOURNAMENT_SIZE=" + TOURNAMENT_SIZE
+                + " DOES_COMPACT_GENOMES=" + DOES_COMPACT_GENOMES
+                + " COMPACTION_INTERVAL=" + COMPACTION_INTERVAL
+                + " COMPACTION_AGE=" + COMPACTION_AGE
+                + " PROP_CONNECTION=" + PROP_CONNECTION
+                + " PROP_KEEP_DISABLED=" + PROP_KEEP_DISABLED
+                + " PROP_NODE=" + PROP_NODE
+                + " PROP_WEIGHT=" + PROP_WEIGHT
+                + " PROP_WEIGHT_UNIFORM=" + PROP_WEIGHT_UNIFORM
+                + " RANDOM_WEIGHT_RANGE=" + RANDOM_WEIGHT_RANGE
+                + " DOES_ALLOW_RECURRENT=" + DOES_ALLOW_RECURRENT
+                + " DOES_TRACK_SPLITS=" + DOES_TRACK_SPLITS
+                + " PROP_ACTIVATION=" + PROP_ACTIVATION
+                + " SIGMOID_MODIFIER=" + SIGMOID_MODIFIER
+                + " USES_BIAS=" + USES_BIAS
+                + " ACTIVATION=" + ACTIVATION
+                + " PRECISION=" + PRECISION;
+    }
+}
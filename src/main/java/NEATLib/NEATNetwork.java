@@ -1,10 +1,14 @@
 package NEATLib;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.DoubleAdder;
 
 /**
  * This class represents a single NEAT-Network
@@ -25,6 +29,31 @@ public class NEATNetwork
     int inputs = 0;
     // Fitness of this network
     public double fitness = 0.0;
+    // Activation function of all nodes in this network
+    Activation activation;
+    /* Fitness added since it was last collected. Striped, so several threads
+     * may add to the fitness of the same network at once. */
+    DoubleAdder pendingFitness = new DoubleAdder();
+    
+    // Node and connection objects kept for reuse when the network is pooled
+    List<Node> spareNodes;
+    List<Connection> spareConnections;
+    /* Hash table from the node IDs of a network being copied to the position 
+     * of the node, so the copied network is only read. Open addressing, -1 
+     * marks a free entry. */
+    int[] positionKeys;
+    int[] positionValues;
+    
+    // Compiled form used for processing, created on first use
+    Phenotype phenotype;
+    
+    // Smallest batch processed by the batched kernel instead of row by row
+    static final int BATCH_THRESHOLD = 4;
+    
+    /* Estimated heap size of a connection and of a node with an empty list of
+     * possible connections, in bytes with compressed references */
+    static final int CONNECTION_BYTES = 48;
+    static final int NODE_BYTES = 88;
     
     // *STRUCTORS --------------------------------------------------------------
     
@@ -41,6 +70,7 @@ public class NEATNetwork
         outputs = outNodes;
         inputs = inNodes;
         reference = ref;
+        activation = ref.ACTIVATION;
         
         // Add input nodes
         for(int i = 0; i < inNodes; i++)
@@ -84,6 +114,7 @@ public class NEATNetwork
         this.nodes = nodes;
         this.connections = connections;
         reference = ref;
+        activation = ref.ACTIVATION;
     }
     
     /**
@@ -95,6 +126,7 @@ public class NEATNetwork
     	inputs = old.inputs;
     	outputs = old.outputs;
     	reference = old.reference;
+    	activation = old.activation;
     	
     	// Copy the nodes
     	Map<Integer,Node> copiedNodeMap = new TreeMap<Integer,Node>();
@@ -113,6 +145,8 @@ public class NEATNetwork
     	for(Connection c : old.connections) {
     		Connection copiedConnection = new Connection(copiedNodeMap.get(c.inRef.nodeID),copiedNodeMap.get(c.outRef.nodeID),c.enabled);
     		copiedConnection.weight = c.weight;
+    		copiedConnection.edgeSlot = c.edgeSlot;
+    		copiedConnection.disabledSince = c.disabledSince;
     		copiedConnections.add(copiedConnection);
     	}
     	
@@ -124,17 +158,250 @@ public class NEATNetwork
     	
     	nodes = copiedNodes;
     	connections = copiedConnections;
+    	
+    	// Slots of the nodes and connections have been taken over
+    	if(old.phenotype != null) {
+    		phenotype = new Phenotype(old.phenotype);
+    	}
+    }
+    
+    /**
+     * Constructor to convert a compact genome back into a network
+     * @param genome The genome to be converted
+     */
+    public NEATNetwork(CompactGenome genome) {
+    	inputs = genome.inputs;
+    	outputs = genome.outputs;
+    	reference = genome.reference;
+    	fitness = genome.fitness;
+    	activation = genome.activation;
+    	
+    	// Create the nodes
+    	Map<Integer,Node> newNodeMap = new TreeMap<Integer,Node>();
+    	for(int i = 0; i < genome.nodeIDs.length; i++) {
+    		Node n = new Node(
+    				Type.values()[genome.nodeTypes[i]], 
+    				genome.nodeIDs[i], 
+    				genome.layerNumbers[i]);
+    		newNodeMap.put(n.nodeID, n);
+    		nodes.add(n);
+    	}
+    	
+    	// Apply possible connections
+    	for(Node n : nodes) {
+    		for(Node nc : nodes) {
+    			if(n == nc || n.t == nc.t) {continue;}
+    			
+    			n.possibleConnections.add(nc);
+    		}
+    	}
+    	
+    	// Create the connections
+    	for(int i = 0; i < genome.innovations.length; i++) {
+    		Connection c = new Connection(
+    				newNodeMap.get(genome.inNodes[i]), 
+    				newNodeMap.get(genome.outNodes[i]), 
+    				genome.enabled.get(i));
+    		c.weight = genome.getWeight(i);
+    		connections.add(c);
+    	}
     }
     
     // METHODS -----------------------------------------------------------------
     
     /**
-     * Increases the fitness
+     * Turns this network into a deep copy of the provided network. The node 
+     * and connection objects already held by this network are reused. The 
+     * provided network is only read, so it may be copied into several 
+     * networks at once.
+     * @param old The network to be copied
+     */
+    void copyFrom(NEATNetwork old)
+    {
+    	inputs = old.inputs;
+    	outputs = old.outputs;
+    	reference = old.reference;
+    	activation = old.activation;
+    	fitness = 0.0;
+    	pendingFitness.reset();
+    	
+    	if(spareNodes == null) {
+    		spareNodes = new ArrayList<Node>();
+    		spareConnections = new ArrayList<Connection>();
+    	}
+    	
+    	// Bring the amount of node objects to the size of the old network
+    	while(nodes.size() > old.nodes.size()) {
+    		spareNodes.add(nodes.remove(nodes.size() - 1));
+    	}
+    	while(nodes.size() < old.nodes.size()) {
+    		nodes.add(spareNodes.isEmpty() 
+    				? new Node(Type.INPUT, 0, 0) 
+    				: spareNodes.remove(spareNodes.size() - 1));
+    	}
+    	
+    	// Copy the nodes
+    	for(int i = 0; i < nodes.size(); i++) {
+    		Node n = nodes.get(i);
+    		Node o = old.nodes.get(i);
+    		n.t = o.t;
+    		n.nodeID = o.nodeID;
+    		n.layerNumber = o.layerNumber;
+    		n.phenotypeSlot = o.phenotypeSlot;
+    		n.possibleConnections.clear();
+    	}
+    	
+    	clearPositions(nodes.size());
+    	for(int i = 0; i < nodes.size(); i++) {
+    		putPosition(old.nodes.get(i).nodeID, i);
+    	}
+    	
+    	for(int i = 0; i < nodes.size(); i++) {
+    		for(Node pc : old.nodes.get(i).possibleConnections) {
+    			nodes.get(i).possibleConnections.add(nodes.get(getPosition(pc.nodeID)));
+    		}
+    	}
+    	
+    	// Bring the amount of connection objects to the size of the old network
+    	while(connections.size() > old.connections.size()) {
+    		spareConnections.add(connections.remove(connections.size() - 1));
+    	}
+    	while(connections.size() < old.connections.size()) {
+    		connections.add(spareConnections.isEmpty() 
+    				? new Connection() 
+    				: spareConnections.remove(spareConnections.size() - 1));
+    	}
+    	
+    	// Copy the connections
+    	for(int i = 0; i < connections.size(); i++) {
+    		Connection c = connections.get(i);
+    		Connection o = old.connections.get(i);
+    		c.inRef = nodes.get(getPosition(o.inRef.nodeID));
+    		c.outRef = nodes.get(getPosition(o.outRef.nodeID));
+    		c.enabled = o.enabled;
+    		c.weight = o.weight;
+    		c.innovationNumber = o.innovationNumber;
+    		c.edgeSlot = o.edgeSlot;
+    		c.disabledSince = o.disabledSince;
+    	}
+    	
+    	// Copy the phenotype
+    	if(old.phenotype == null) {
+    		phenotype = null;
+    	} else if(phenotype == null) {
+    		phenotype = new Phenotype(old.phenotype);
+    	} else {
+    		phenotype.copyFrom(old.phenotype);
+    	}
+    }
+    
+    /**
+     * Empties the table of node positions and makes room for a given amount 
+     * of nodes
+     * @param count Amount of nodes to be put into the table
+     */
+    void clearPositions(int count)
+    {
+    	int capacity = 16;
+    	while(capacity < count * 2) {
+    		capacity <<= 1;
+    	}
+    	
+    	if(positionKeys == null || positionKeys.length < capacity) {
+    		positionKeys = new int[capacity];
+    		positionValues = new int[capacity];
+    	}
+    	
+    	Arrays.fill(positionKeys, -1);
+    }
+    
+    /**
+     * @param nodeID ID of a node
+     * @return Returns the first entry of the position table to be probed
+     */
+    int hashPosition(int nodeID)
+    {
+    	int hash = nodeID * 0x9E3779B9;
+    	return (hash ^ (hash >>> 16)) & (positionKeys.length - 1);
+    }
+    
+    /**
+     * Stores the position of a node in the table of node positions
+     * @param nodeID ID of the node
+     * @param position Position of the node
+     */
+    void putPosition(int nodeID, int position)
+    {
+    	int entry = hashPosition(nodeID);
+    	while(positionKeys[entry] != -1 && positionKeys[entry] != nodeID) {
+    		entry = (entry + 1) & (positionKeys.length - 1);
+    	}
+    	
+    	positionKeys[entry] = nodeID;
+    	positionValues[entry] = position;
+    }
+    
+    /**
+     * @param nodeID ID of a node stored in the table of node positions
+     * @return Returns the position of the node
+     */
+    int getPosition(int nodeID)
+    {
+    	int entry = hashPosition(nodeID);
+    	while(positionKeys[entry] != nodeID) {
+    		if(positionKeys[entry] == -1) {
+    			throw new IllegalArgumentException("Node " + nodeID + " is not part of the copied network");
+    		}
+    		entry = (entry + 1) & (positionKeys.length - 1);
+    	}
+    	
+    	return positionValues[entry];
+    }
+    
+    /**
+     * @return Returns the amount of node and connection objects held by this
+     * network, including the spare ones kept for reuse
+     */
+    long getRetainedGeneCount()
+    {
+    	return nodes.size() + connections.size() 
+    			+ (spareNodes == null ? 0 : spareNodes.size() + spareConnections.size());
+    }
+    
+    /**
+     * Increases the fitness. Safe to be called from several threads at once, 
+     * the value becomes part of the fitness field once it is collected.
      * @param value Value with which the fitness is increased
      */
     public void addFitness(double value)
     {
-        fitness += value;
+        pendingFitness.add(value);
+    }
+    
+    /**
+     * Adds the fitness accumulated through addFitness to the fitness field. 
+     * Must not run concurrently with addFitness.
+     */
+    void collectFitness()
+    {
+        fitness += pendingFitness.sumThenReset();
+    }
+    
+    /**
+     * @return Returns the fitness including the not yet collected additions
+     */
+    public double getFitness()
+    {
+        return fitness + pendingFitness.sum();
+    }
+    
+    /**
+     * Sets the fitness back to 0
+     */
+    public void resetFitness()
+    {
+        fitness = 0.0;
+        pendingFitness.reset();
     }
     
     /**
@@ -237,24 +504,36 @@ public class NEATNetwork
      */
     public NEATNetwork mate(NEATNetwork a, NEATNetwork b)
     {
-        // Offspring to be returned
-        NEATNetwork offspring;
+        return mate(a, b, null);
+    }
+    
+    /**
+     * Mates two networks and returns a new network. The offspring takes over 
+     * the nodes and connection genes of the fitter parent, matching genes 
+     * inherit the weight of the less fit parent in relation to its fitness. 
+     * Disabled genes stay disabled with a given probability.
+     * @param a Parent A for the new network
+     * @param b Parent B for the new network
+     * @param pool Pool providing the storage of the offspring, may be null
+     * @return Returns the offspring of A and B as a new network
+     */
+    NEATNetwork mate(NEATNetwork a, NEATNetwork b, GenomePool pool)
+    {
         // The fitter parent network
         NEATNetwork better = a.fitness > b.fitness ? a : b;
         // The less fit parent network
         NEATNetwork worse = better == a ? b : a;
-        // Map of the nodes for the offspring ordered by node ID
-        Map<Integer,Node> newNodeMap = new TreeMap<>();
-        // List of the connections for the offspring
-        List<Connection> newConnections = new ArrayList<>();
-        // List of kept connections from the parents
-        Map<Integer,Connection> keptConnections = new TreeMap<>();
-        // List of new nodes for the offspring
-        List<Node> newNodes = new ArrayList<>();
+        // Chance of taking over a matching gene from the less fit parent
+        double worseShare = worse.fitness / (better.fitness + worse.fitness);
+        // Offspring to be returned
+        NEATNetwork offspring = pool == null ? new NEATNetwork(better) : pool.copyOf(better);
         
         // Proper sorting
         Collections.sort(
-                better.connections, 
+                offspring.nodes, 
+                (Node a1, Node b1) -> a1.nodeID - b1.nodeID);
+        Collections.sort(
+                offspring.connections, 
                 (Connection a1, Connection b1) -> 
                         a1.innovationNumber - b1.innovationNumber);
         Collections.sort(
@@ -262,62 +541,45 @@ public class NEATNetwork
                 (Connection a1, Connection b1) -> 
                         a1.innovationNumber - b1.innovationNumber);
         
-        // Keep track of the enabled status of a gene
-        Map<Integer,Boolean> epigene = new TreeMap<>();
-        
-        // Mark all better connections as to be transferred
-        for(Connection c : better.connections){
-            keptConnections.put(c.innovationNumber,c);
-            
-            if(!c.enabled && Math.random() < reference.PROP_KEEP_DISABLED) {
-            	epigene.put(c.innovationNumber, false);
-            } else {
-            	epigene.put(c.innovationNumber, true);
-            }
-        }
-        
-        // Get a portion of the matching genes in relation to their fitness
-        for(Connection c : worse.connections){
-            if(keptConnections.containsKey(c.innovationNumber) && Math.random() < worse.fitness / (better.fitness + worse.fitness)){
-                keptConnections.replace(c.innovationNumber, c);
-                
-                if(!epigene.containsKey(c.innovationNumber) && !c.enabled && Math.random() < reference.PROP_KEEP_DISABLED) {
-                	epigene.put(c.innovationNumber, false);
-                }
-            }
-        }
-        
-        // Apply to new list
-        for(Node n: better.nodes){
-            newNodeMap.put(n.nodeID,new Node(n));
-        }
-        
         // Apply possible connections
-        for(Node n : newNodeMap.values()){
-            for(Node nc : newNodeMap.values()){
+        for(Node n : offspring.nodes){
+            n.possibleConnections.clear();
+            
+            for(Node nc : offspring.nodes){
                 if(n == nc || n.t == nc.t){continue;}
                 
                 n.possibleConnections.add(nc);
             }
         }
         
-        // Apply new connections
-        for(Connection c : keptConnections.values()){
-            newConnections.add(new Connection(
-                    newNodeMap.get(c.inRef.nodeID),
-                    newNodeMap.get(c.outRef.nodeID),
-                    epigene.containsKey(c.innovationNumber) ? epigene.get(c.innovationNumber) : true
-            ));
-        }
-        
-        // Put nodes into a normal array list
-        for(Node n : newNodeMap.values()){
-            newNodes.add(n);
+        // Inherit the weights and keep track of the enabled status
+        int j = 0;
+        for(Connection c : offspring.connections){
+            // Advance the less fit parent to the same innovation
+            while(j < worse.connections.size()
+                    && worse.connections.get(j).innovationNumber < c.innovationNumber) {
+                j++;
+            }
+            
+            if(j < worse.connections.size()
+                    && worse.connections.get(j).innovationNumber == c.innovationNumber
+                    && reference.random.nextDouble() < worseShare) {
+                c.weight = worse.connections.get(j).weight;
+            }
+            
+            c.enabled = c.enabled || reference.random.nextDouble() >= reference.PROP_KEEP_DISABLED;
+            if(c.enabled) {c.disabledSince = -1;}
+            
+            c.inRef.removePossibility(c.outRef);
+            c.outRef.removePossibility(c.inRef);
+            
+            // Patch the phenotype taken over from the fitter parent
+            if(offspring.phenotype != null) {
+                offspring.phenotype.setWeight(c);
+                offspring.phenotype.setEnabled(c);
+            }
         }
         
-        // Apply to new network
-        offspring = new NEATNetwork(inputs, outputs, newNodes, newConnections, a.reference);
-        
         return offspring;
     }
     
@@ -326,127 +588,395 @@ public class NEATNetwork
      */
     public void mutate()
     {
+    	// Switch to another activation function
+    	if(reference.PROP_ACTIVATION > 0 && reference.random.nextDouble() < reference.PROP_ACTIVATION) {
+    		Activation[] activations = Activation.values();
+    		setActivation(activations[(int) (reference.random.nextDouble() * activations.length)]);
+    	}
+    	
     	// Only add a connection for the first mutation
     	if(connections.isEmpty()) {
     		//Add a new connection
-    		Node n1 = nodes.get((int) (Math.random() * nodes.size()));
+    		Node n1 = nodes.get((int) (reference.random.nextDouble() * nodes.size()));
     		Node n2 = n1.getPossibility();
     		if(n1.t == Type.OUTPUT || n2.layerNumber < n1.layerNumber)
     		{
-    			connections.add(new Connection(n2,n1,true));
+    			addConnection(new Connection(n2,n1,true));
     		} else {
-    			connections.add(new Connection(n1,n2,true));
+    			addConnection(new Connection(n1,n2,true));
     		}
     		
-    		double perturbance = ((Math.random() * 2) - 1) * reference.RANDOM_WEIGHT_RANGE;
+    		double perturbance = ((reference.random.nextDouble() * 2) - 1) * reference.RANDOM_WEIGHT_RANGE;
     		
-    		for(Connection c : connections) {
-    			if(Math.random() < reference.PROP_WEIGHT_UNIFORM) {
-    				c.weight += perturbance;
-    			} else {
-    				c.weight = ((Math.random() * 2) - 1) * reference.RANDOM_WEIGHT_RANGE;
-    			}
-    		}
+    		perturbWeights(perturbance);
     		
     		return;
     	}
     	
     	// Change the weights of the connections if they have to be changed at all
-    	if(Math.random() < reference.PROP_WEIGHT) {
-    		double perturbance = ((Math.random() * 2) - 1) * reference.RANDOM_WEIGHT_RANGE;
+    	if(reference.random.nextDouble() < reference.PROP_WEIGHT) {
+    		double perturbance = ((reference.random.nextDouble() * 2) - 1) * reference.RANDOM_WEIGHT_RANGE;
     		
-    		for(Connection c : connections) {
-    			if(Math.random() < reference.PROP_WEIGHT_UNIFORM) {
-    				c.weight += perturbance;
-    			} else {
-    				c.weight = ((Math.random() * 2) - 1) * reference.RANDOM_WEIGHT_RANGE;
-    			}
-    		}
+    		perturbWeights(perturbance);
     	}
     	
     	// Add a new connection
-    	if(Math.random() < reference.PROP_CONNECTION) {
+    	if(reference.random.nextDouble() < reference.PROP_CONNECTION) {
     		//Add a new connection
-    		Node n1 = nodes.get((int) (Math.random() * nodes.size()));
+    		Node n1 = nodes.get((int) (reference.random.nextDouble() * nodes.size()));
     		Node n2 = n1.getPossibility();
     		if(n2 == null) {return;}
           
     		if(n2.t == Type.INPUT || (n2.layerNumber < n1.layerNumber && !reference.DOES_ALLOW_RECURRENT))
     		{
-    			connections.add(new Connection(n2,n1,true));
+    			addConnection(new Connection(n2,n1,true));
     			return;
     		} else {
-    			connections.add(new Connection(n1,n2,true));
+    			addConnection(new Connection(n1,n2,true));
     		}
     	}
     	
     	// Add a new node by splitting an existing connection
-    	if(Math.random() < reference.PROP_NODE) {
+    	if(reference.random.nextDouble() < reference.PROP_NODE) {
     		// Get the original connection and disable it
-    		Connection original = connections.get((int) (Math.random() * connections.size()));
+    		Connection original = connections.get((int) (reference.random.nextDouble() * connections.size()));
     		original.enabled = false;
-    		original.outRef.inputValues.remove(original.inRef.nodeID);
+    		original.disabledSince = reference.generation;
           
     		// Add a new node
-    		Node insertNode = new Node(Type.HIDDEN, original.inRef, original.outRef, 0);
+    		Node insertNode = new Node(Type.HIDDEN, original.inRef, original.outRef, getSplitNodeID(original));
     		nodes.add(insertNode);
-    		insertNode.nodeID = nodes.indexOf(insertNode);
+    		
+    		// Only the split connection and the new node change in the phenotype
+    		if(phenotype != null) {
+    			phenotype.setEnabled(original);
+    			phenotype.addNode(insertNode);
+    		}
           
     		// Add a new connection towards the new node
     		Connection newOut = new Connection(insertNode, original.outRef, true);
     		newOut.weight = original.weight;
-    		connections.add(newOut);
+    		addConnection(newOut);
           
-    		connections.add(new Connection(original.inRef, insertNode, true));
+    		addConnection(new Connection(original.inRef, insertNode, true));
     	}
     }
     
     /**
-     * Processes the net with a given input
+     * Returns the ID of the node to be added by splitting a connection. The 
+     * NEAT instance hands out the same ID for the same split in every 
+     * network. If this network already has a node with that ID, because the 
+     * connection has been split before, the ID registered for the next 
+     * occurrence of the split is taken.
+     * @param original The connection to be split
+     * @return Returns the ID of the new node
+     */
+    int getSplitNodeID(Connection original)
+    {
+    	if(!reference.DOES_TRACK_SPLITS) {
+    		// Compaction may have left gaps in the node IDs
+    		int nodeID = nodes.size();
+    		for(Node n : nodes) {
+    			nodeID = Math.max(nodeID, n.nodeID + 1);
+    		}
+    		return nodeID;
+    	}
+    	
+    	for(int occurrence = 0; ; occurrence++) {
+    		int nodeID = reference.addSplit(original.innovationNumber, occurrence);
+    		
+    		if(!hasNode(nodeID)) {
+    			return nodeID;
+    		}
+    	}
+    }
+    
+    /**
+     * @param nodeID ID of a node
+     * @return Returns whether this network holds a node with the given ID
+     */
+    boolean hasNode(int nodeID)
+    {
+    	for(Node n : nodes) {
+    		if(n.nodeID == nodeID) {
+    			return true;
+    		}
+    	}
+    	
+    	return false;
+    }
+    
+    /**
+     * Perturbs the weights of all connections uniformly or assigns random 
+     * ones. The weights are kept in the precision of the NEAT instance.
+     * @param perturbance Uniform perturbance to be added
+     */
+    void perturbWeights(double perturbance)
+    {
+    	Precision precision = reference.PRECISION;
+    	
+    	for(Connection c : connections) {
+    		if(reference.random.nextDouble() < reference.PROP_WEIGHT_UNIFORM) {
+    			c.weight = precision.round(c.weight + perturbance);
+    		} else {
+    			c.weight = precision.round(((reference.random.nextDouble() * 2) - 1) * reference.RANDOM_WEIGHT_RANGE);
+    		}
+    		
+    		if(phenotype != null) {
+    			phenotype.setWeight(c);
+    		}
+    	}
+    }
+    
+    /**
+     * @return Returns the activation function of the nodes in this network
+     */
+    public Activation getActivation()
+    {
+    	return activation;
+    }
+    
+    /**
+     * Sets the activation function of the nodes in this network
+     * @param activation The new activation function
+     */
+    public void setActivation(Activation activation)
+    {
+    	this.activation = activation;
+    	
+    	if(phenotype != null) {
+    		phenotype.activation = activation;
+    	}
+    }
+    
+    /**
+     * Strips dead structure from the genome. Connections disabled for at 
+     * least the given amount of generations are removed, then every hidden 
+     * node without a path to an output through the remaining connections is 
+     * removed together with its connections. Innovation numbers and node IDs 
+     * are handed out by the NEAT instance, so a removed gene which evolves 
+     * again gets its old innovation number and still aligns in crossover and 
+     * speciation. The phenotype is compiled anew on the next use.
+     * @param generation Number of the current generation
+     * @param age Amount of generations after which a disabled connection is 
+     * removed
+     * @return Returns the amount of removed connections
+     */
+    int compact(int generation, int age)
+    {
+    	List<Connection> removed = new ArrayList<Connection>();
+    	
+    	// Remove the connections which have been disabled for long enough
+    	int kept = 0;
+    	for(Connection c : connections) {
+    		// Start counting for connections disabled elsewhere
+    		if(!c.enabled && c.disabledSince < 0) {c.disabledSince = generation;}
+    		
+    		if(!c.enabled && generation - c.disabledSince >= age) {
+    			removed.add(c);
+    		} else {
+    			connections.set(kept++, c);
+    		}
+    	}
+    	connections.subList(kept, connections.size()).clear();
+    	
+    	// Find the nodes with a path to an output, walking the connections 
+    	// backwards
+    	for(int i = 0; i < nodes.size(); i++) {
+    		nodes.get(i).copyIndex = i;
+    	}
+    	
+    	int[] firstIn = new int[nodes.size() + 1];
+    	for(Connection c : connections) {
+    		firstIn[c.outRef.copyIndex + 1]++;
+    	}
+    	for(int i = 0; i < nodes.size(); i++) {
+    		firstIn[i + 1] += firstIn[i];
+    	}
+    	
+    	int[] sources = new int[connections.size()];
+    	int[] cursor = Arrays.copyOf(firstIn, nodes.size());
+    	for(Connection c : connections) {
+    		sources[cursor[c.outRef.copyIndex]++] = c.inRef.copyIndex;
+    	}
+    	
+    	boolean[] isLive = new boolean[nodes.size()];
+    	int[] stack = new int[nodes.size()];
+    	int top = 0;
+    	for(Node n : nodes) {
+    		if(n.t != Type.HIDDEN) {
+    			isLive[n.copyIndex] = true;
+    			if(n.t == Type.OUTPUT) {stack[top++] = n.copyIndex;}
+    		}
+    	}
+    	
+    	while(top > 0) {
+    		int node = stack[--top];
+    		for(int e = firstIn[node]; e < firstIn[node + 1]; e++) {
+    			if(!isLive[sources[e]]) {
+    				isLive[sources[e]] = true;
+    				stack[top++] = sources[e];
+    			}
+    		}
+    	}
+    	
+    	// Remove the dead nodes and their connections
+    	int nodeCount = 0;
+    	for(Node n : nodes) {
+    		if(isLive[n.copyIndex]) {nodeCount++;}
+    	}
+    	
+    	if(nodeCount < nodes.size()) {
+    		kept = 0;
+    		for(Connection c : connections) {
+    			if(isLive[c.inRef.copyIndex] && isLive[c.outRef.copyIndex]) {
+    				connections.set(kept++, c);
+    			} else {
+    				removed.add(c);
+    			}
+    		}
+    		connections.subList(kept, connections.size()).clear();
+    		
+    		kept = 0;
+    		for(Node n : nodes) {
+    			if(isLive[n.copyIndex]) {
+    				n.possibleConnections.removeIf((Node pc) -> !isLive[pc.copyIndex]);
+    				nodes.set(kept++, n);
+    			}
+    		}
+    		nodes.subList(kept, nodes.size()).clear();
+    	}
+    	
+    	if(removed.isEmpty()) {return 0;}
+    	
+    	// Allow the connections between the remaining nodes to evolve again
+    	Set<Long> linked = new HashSet<Long>();
+    	for(Connection c : connections) {
+    		linked.add(((long) c.inRef.nodeID << 32) | c.outRef.nodeID);
+    		linked.add(((long) c.outRef.nodeID << 32) | c.inRef.nodeID);
+    	}
+    	
+    	for(Connection c : removed) {
+    		if(!isLive[c.inRef.copyIndex] || !isLive[c.outRef.copyIndex] 
+    				|| linked.contains(((long) c.inRef.nodeID << 32) | c.outRef.nodeID)) {
+    			continue;
+    		}
+    		
+    		if(!c.inRef.possibleConnections.contains(c.outRef)) {
+    			c.inRef.possibleConnections.add(c.outRef);
+    		}
+    		if(!c.outRef.possibleConnections.contains(c.inRef)) {
+    			c.outRef.possibleConnections.add(c.inRef);
+    		}
+    	}
+    	
+    	phenotype = null;
+    	
+    	return removed.size();
+    }
+    
+    /**
+     * Adds a connection gene and patches the phenotype accordingly
+     * @param c The new connection
+     */
+    void addConnection(Connection c)
+    {
+    	connections.add(c);
+    	
+    	if(phenotype != null) {
+    		phenotype.addEdge(c);
+    	}
+    }
+    
+    /**
+     * Compiles the network into its phenotype unless that already happened.
+     * Once compiled, the phenotype is patched on every mutation. The weights
+     * of the phenotype are stored in the precision of the NEAT instance and
+     * converted if that precision has changed.
+     */
+    void compile()
+    {
+    	if(phenotype == null) {
+    		phenotype = new Phenotype(this);
+    	} else if(phenotype.isFloat() != (reference.PRECISION == Precision.FLOAT)) {
+    		// Taken from the connections, which keep the weights as doubles
+    		phenotype.storeWeights(reference.PRECISION);
+    		for(Connection c : connections) {
+    			phenotype.setWeight(c);
+    		}
+    	}
+    }
+    
+    /**
+     * Processes the net with a given input. Only enabled connections are
+     * expressed, see Phenotype for the evaluation rule. A connection which
+     * reaches its output node after that node has been activated, e.g. a
+     * recurrent one, delivers its value in the next call. Processing thus
+     * alters the network, so it must not be processed by several threads at
+     * once. A copy of the network starts without any values carried over.
      * @param inputs Array of input values
      * @return Returns an array corresponding to the calculated outputs
      */
     public double[] process(double[] input)
     {
-    	// Sort the connections for input node to make sure every incoming 
-    	// connection has already been processed
-        Collections.sort(connections, (Connection a, Connection b) -> 
-                (int) (a.inRef.layerNumber - b.inRef.layerNumber)
-        );
-        
-        // Assign the input values and reset the other nodes
-        for(Node n: nodes)
-        {
-            if(n.t == Type.INPUT)
-            {
-                n.currentValue = input[n.nodeID];
-            }
-            else
-            {
-                n.currentValue = 0;
-                n.hasBeenActivated = false;
-            }
-        }
+        compile();
         
-        // Go through the connections and assign the values
-        for(Connection c : connections)
-        {
-            c.inRef.activate();
-            c.outRef.inputValues.put(c.inRef.nodeID, c.inRef.currentValue * c.weight);
-        }
+        return phenotype.process(input);
+    }
+    
+    /**
+     * Processes a batch of input rows at once, which is considerably faster
+     * than processing them one by one. Gives the same result as processing
+     * the rows one after another.
+     * @param inputs Array of input columns, each holding a value per row
+     * @param batch Amount of rows
+     * @return Returns an array of output columns, each holding a value per row
+     */
+    public double[][] processBatch(double[][] inputs, int batch)
+    {
+        compile();
         
-        // Get the values in the output
-        double[] output = new double[outputs];
-        for(Node n: nodes)
-        {
-            if(n.t == Type.OUTPUT)
-            {
-                n.activate();
-                output[n.nodeID - inputs] = n.currentValue;
+        // Too few rows to make up for the setup of the batch, or values
+        // carried from one row to the next
+        if(batch < BATCH_THRESHOLD || phenotype.delayedCount > 0) {
+            double[][] output = new double[outputs][batch];
+            double[] row = new double[inputs.length];
+            
+            for(int b = 0; b < batch; b++) {
+                for(int i = 0; i < row.length; i++) {
+                    row[i] = inputs[i][b];
+                }
+                
+                double[] result = phenotype.process(row);
+                for(int o = 0; o < outputs; o++) {
+                    output[o][b] = result[o];
+                }
             }
+            
+            return output;
         }
         
-        return output;
+        return phenotype.processBatch(inputs, batch);
+    }
+    
+    /**
+     * Calculates an upper bound for the deviation of the outputs from their
+     * exact values, if every weight deviates by at most an absolute and a 
+     * relative error and every input, product and activation is rounded with
+     * at most the relative error.
+     * @param inputMagnitude Largest absolute value of any input
+     * @param weightError Absolute error of every weight
+     * @param roundingError Relative error of every weight and rounded value
+     * @return Returns the largest possible deviation of any output
+     */
+    public double getErrorBound(
+            double inputMagnitude, 
+            double weightError, 
+            double roundingError)
+    {
+        compile();
+        
+        return phenotype.getErrorBound(inputMagnitude, weightError, roundingError);
     }
     
     // INTERNAL CLASSES --------------------------------------------------------
@@ -467,6 +997,17 @@ public class NEATNetwork
         double weight = 1;
         // The innovation number of the connection
         int innovationNumber;
+        // Slot of the connection in the phenotype
+        int edgeSlot = -1;
+        // Generation in which the connection has been disabled, -1 if unknown
+        int disabledSince = -1;
+        
+        /**
+         * Creates an empty connection, to be filled when copying a network
+         */
+        Connection()
+        {
+        }
         
         /**
          * Creates a new connection between Nodes
@@ -502,18 +1043,16 @@ public class NEATNetwork
     {
         // Possible connections to be made with other nodes
         List<Node> possibleConnections = new ArrayList<Node>();
-        // Holding the current input values
-        Map<Integer, Double> inputValues = new TreeMap<Integer, Double>();
         // Type of the node
         Type t;
         // Layer number to keep track of the sequence 
         double layerNumber;
-        // Current value of the processing 
-        double currentValue = 0;
         // ID of the node
         int nodeID = 0;
-        // Whether the node as already used it's activation function
-        boolean hasBeenActivated = false;
+        // Position of the node in its network while the network is compacted
+        int copyIndex = 0;
+        // Slot of the node in the phenotype
+        int phenotypeSlot = -1;
         
         /**
          * Creates a new Node
@@ -548,6 +1087,20 @@ public class NEATNetwork
             }
         }
         
+        /**
+         * Constructor for a node with a known position in the network, but 
+         * has an empty list of possible connections
+         * @param type Defines the type of the node
+         * @param ID Innovation ID of the node
+         * @param layerNumber Layer number of the node
+         */
+        Node(Type type, int ID, double layerNumber)
+        {
+            t = type;
+            nodeID = ID;
+            this.layerNumber = layerNumber;
+        }
+        
         /**
          * Constructor for a node using another node, but has an empty list of 
          * possible connections
@@ -558,25 +1111,7 @@ public class NEATNetwork
             t = old.t;
             nodeID = old.nodeID;
             layerNumber = old.layerNumber;
-        }
-        
-        /**
-         * Activates the node using a sigmoid function on its current value.
-         */
-        public void activate()
-        {
-        	if(!hasBeenActivated && t != Type.INPUT) 
-        	{
-        		currentValue = 0;
-        		
-        		for(Double value : inputValues.values())
-        		{
-        			currentValue += value;
-        		}
-        		
-        		currentValue = 1.0 / (1.0 + Math.pow(Math.E,-(currentValue) * reference.SIGMOID_MODIFIER));
-        		hasBeenActivated = true;
-        	}
+            phenotypeSlot = old.phenotypeSlot;
         }
         
         /**
@@ -621,7 +1156,7 @@ public class NEATNetwork
         {
             if(possibleConnections.isEmpty()){return null;}
             
-            return possibleConnections.get((int) (Math.random() * possibleConnections.size()));
+            return possibleConnections.get((int) (reference.random.nextDouble() * possibleConnections.size()));
         }
     }
     
@@ -629,4 +1164,4 @@ public class NEATNetwork
      * Enum holding the types of nodes in the network
      */
     public enum Type {INPUT,HIDDEN,OUTPUT};
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,397 @@
+package NEATLib;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Population of genomes stored outside of the Java heap. The genes of all
+ * genomes are written into large direct buffers, the arenas, so the garbage
+ * collector only ever sees a handful of objects no matter how large the
+ * population grows. Every genome is a variable length record found through
+ * an offset table and is accessed through a lightweight GenomeView.
+ *
+ * The scope is deliberately limited to storage: the generation loop of NEAT
+ * keeps working on NEATNetwork objects and does not use it. Genomes are 
+ * copied in from CompactGenomes, can be processed and mated in place, and 
+ * are copied back onto the heap through GenomeView.toGenome, e.g. to be 
+ * mutated. Speciation and reuse of the arenas are not supported.
+ *
+ * Record layout, all values in native byte order:
+ * <pre>
+ * header  node count (int), gene count (int), plan length (int), activation
+ *         function ordinal (int), fitness (double)
+ * nodes   ID (int), type ordinal (int), layer number (double)
+ * genes   innovation number (int), input node slot (int), output node slot
+ *         (int), enabled flag (int), weight (double, or float if the NEAT 
+ *         instance uses Precision.FLOAT)
+ * plan    indices of the expressed genes which are not delayed, in
+ *         processing order, see Phenotype.orderGenes (int each)
+ * </pre>
+ * Node genes are sorted after their ID, connection genes after their
+ * innovation number, the same way a CompactGenome keeps them.
+ */
+public class OffHeapPopulation
+{
+    //// RECORD LAYOUT
+    // Offsets inside the header
+    static final int NODE_COUNT = 0;
+    static final int GENE_COUNT = 4;
+    static final int PLAN_COUNT = 8;
+    static final int ACTIVATION = 12;
+    static final int FITNESS = 16;
+    // Size of the header in bytes
+    static final int HEADER_SIZE = 24;
+    // Size of a single node gene in bytes
+    static final int NODE_SIZE = 16;
+    // Size of a single connection gene in bytes, with a double weight
+    static final int GENE_SIZE = 24;
+    // Size of a single connection gene in bytes, with a float weight
+    static final int FLOAT_GENE_SIZE = 20;
+    // Offset of the weight inside a connection gene
+    static final int WEIGHT = 16;
+    // Size of a single plan entry in bytes
+    static final int PLAN_ENTRY_SIZE = 4;
+
+    // Default size of an arena in bytes
+    public static final int DEFAULT_ARENA_SIZE = 1 << 24;
+
+    // Reference to the NEAT instance
+    NEAT reference;
+    // Number of input nodes of every genome
+    int inputs;
+    // Number of output nodes of every genome
+    int outputs;
+    // Whether the weights are stored as floats
+    boolean isFloat;
+    // Size of a single connection gene in bytes
+    int geneSize;
+
+    // Size of a newly allocated arena
+    int arenaSize;
+    // Buffers holding the records
+    List<ByteBuffer> arenas = new ArrayList<>();
+    // Index of the arena currently written to
+    int currentArena = 0;
+    // Write position inside the current arena
+    int arenaPosition = 0;
+
+    // Location of every record, arena index in the upper 32 bits and offset
+    // inside the arena in the lower 32 bits
+    long[] offsets = new long[64];
+    // Amount of genomes in the population
+    int size = 0;
+    // Amount of bytes taken by records
+    long usedBytes = 0;
+
+    //// SCRATCH SPACE OF MATE, grown as needed
+    // Enabled flag and weight of every gene of the offspring
+    boolean[] isEnabled = new boolean[0];
+    double[] weights = new double[0];
+    // Gene index and input and output node slot of every enabled gene
+    int[] enabledGenes = new int[0];
+    int[] inSlots = new int[0];
+    int[] outSlots = new int[0];
+    // Positions in the enabled genes of the expressed ones, in processing order
+    int[] order = new int[0];
+    // Layer number of every node of the offspring
+    double[] layers = new double[0];
+    // Phenotype ordering the genes of the offspring
+    Phenotype orderer = new Phenotype();
+
+    // *STRUCTORS --------------------------------------------------------------
+
+    /**
+     * Constructor for an empty population with the default arena size
+     * @param inNodes Amount of input nodes of every genome
+     * @param outNodes Amount of output nodes of every genome
+     * @param ref Reference to the NEAT instance
+     */
+    public OffHeapPopulation(int inNodes, int outNodes, NEAT ref)
+    {
+        this(inNodes, outNodes, ref, DEFAULT_ARENA_SIZE);
+    }
+
+    /**
+     * Constructor for an empty population. The weights are stored in the
+     * precision the NEAT instance uses at this point.
+     * @param inNodes Amount of input nodes of every genome
+     * @param outNodes Amount of output nodes of every genome
+     * @param ref Reference to the NEAT instance
+     * @param arenaSize Size of a single arena in bytes
+     */
+    public OffHeapPopulation(int inNodes, int outNodes, NEAT ref, int arenaSize)
+    {
+        inputs = inNodes;
+        outputs = outNodes;
+        reference = ref;
+        this.arenaSize = arenaSize;
+        isFloat = ref.PRECISION == Precision.FLOAT;
+        geneSize = isFloat ? FLOAT_GENE_SIZE : GENE_SIZE;
+    }
+
+    // METHODS -----------------------------------------------------------------
+
+    /**
+     * @return Returns the amount of genomes in the population
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return Returns the amount of bytes taken by the records
+     */
+    public long getUsedBytes()
+    {
+        return usedBytes;
+    }
+
+    /**
+     * Returns a view onto a genome of the population
+     * @param index Index of the genome
+     * @return Returns the view
+     */
+    public GenomeView view(int index)
+    {
+        if(index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Genome " + index + " of " + size);
+        }
+
+        long location = offsets[index];
+        return new GenomeView(this, arenas.get((int) (location >>> 32)), (int) location);
+    }
+
+    /**
+     * Copies a genome into the population
+     * @param genome The genome to be stored
+     * @return Returns the index of the stored genome
+     */
+    public int add(CompactGenome genome)
+    {
+        if(genome.plan == null) {
+            genome.buildPlan();
+        }
+
+        int nodeCount = genome.nodeIDs.length;
+        int geneCount = genome.innovations.length;
+        int planCount = genome.plan.length / 3;
+
+        int index = reserve(nodeCount, geneCount, planCount);
+        ByteBuffer arena = arenas.get(currentArena);
+        int base = (int) offsets[index];
+
+        arena.putDouble(base + FITNESS, genome.fitness);
+        arena.putInt(base + ACTIVATION, genome.activation.ordinal());
+
+        int nodes = base + HEADER_SIZE;
+        for(int i = 0; i < nodeCount; i++) {
+            int position = nodes + i * NODE_SIZE;
+            arena.putInt(position, genome.nodeIDs[i]);
+            arena.putInt(position + 4, genome.nodeTypes[i]);
+            arena.putDouble(position + 8, genome.layerNumbers[i]);
+        }
+
+        int genes = nodes + nodeCount * NODE_SIZE;
+        for(int i = 0; i < geneCount; i++) {
+            writeGene(arena, genes + i * geneSize,
+                    genome.innovations[i],
+                    genome.getNodeSlot(genome.inNodes[i]),
+                    genome.getNodeSlot(genome.outNodes[i]),
+                    genome.enabled.get(i),
+                    genome.getWeight(i));
+        }
+
+        int plan = genes + geneCount * geneSize;
+        for(int i = 0; i < planCount; i++) {
+            arena.putInt(plan + i * PLAN_ENTRY_SIZE, genome.plan[i * 3]);
+        }
+
+        return index;
+    }
+
+    /**
+     * Mates two genomes of a population and writes the offspring directly
+     * into this population. Follows the same rules as CompactGenome.mate.
+     * @param a Parent A for the new genome
+     * @param b Parent B for the new genome
+     * @return Returns the index of the offspring
+     */
+    public int mate(GenomeView a, GenomeView b)
+    {
+        // The fitter parent genome
+        GenomeView better = a.getFitness() > b.getFitness() ? a : b;
+        // The less fit parent genome
+        GenomeView worse = better == a ? b : a;
+        // Chance of taking over a matching gene from the less fit parent
+        double worseShare = worse.getFitness() / (better.getFitness() + worse.getFitness());
+
+        int nodeCount = better.getNodeCount();
+        int geneCount = better.getGeneCount();
+        int worseCount = worse.getGeneCount();
+
+        // Decide on the genes of the offspring first to know its size
+        if(isEnabled.length < geneCount) {
+            isEnabled = new boolean[geneCount];
+            weights = new double[geneCount];
+            enabledGenes = new int[geneCount];
+            inSlots = new int[geneCount];
+            outSlots = new int[geneCount];
+            order = new int[geneCount];
+        }
+        boolean[] isEnabled = this.isEnabled;
+        double[] weights = this.weights;
+        int enabledCount = 0;
+
+        int j = 0;
+        for(int i = 0; i < geneCount; i++) {
+            int innovation = better.getInnovation(i);
+            weights[i] = better.getWeight(i);
+
+            // Advance the less fit parent to the same innovation
+            while(j < worseCount && worse.getInnovation(j) < innovation) {
+                j++;
+            }
+
+            if(j < worseCount && worse.getInnovation(j) == innovation
+                    && reference.random.nextDouble() < worseShare) {
+                weights[i] = worse.getWeight(j);
+            }
+
+            isEnabled[i] = better.isEnabled(i)
+                    || reference.random.nextDouble() >= reference.PROP_KEEP_DISABLED;
+            if(isEnabled[i]) {
+                enabledGenes[enabledCount] = i;
+                inSlots[enabledCount] = better.getInSlot(i);
+                outSlots[enabledCount] = better.getOutSlot(i);
+                enabledCount++;
+            }
+        }
+
+        // Order the enabled genes the same way a phenotype does
+        if(layers.length < nodeCount) {
+            layers = new double[nodeCount];
+        }
+        for(int i = 0; i < nodeCount; i++) {
+            layers[i] = better.getLayerNumber(i);
+        }
+        int planCount = orderer.orderGenes(nodeCount, layers, inSlots, outSlots, enabledCount, order);
+
+        int index = reserve(nodeCount, geneCount, planCount);
+        ByteBuffer arena = arenas.get(currentArena);
+        int base = (int) offsets[index];
+        arena.putInt(base + ACTIVATION, better.getActivation().ordinal());
+
+        // Take over the nodes of the fitter parent as they are
+        better.copyNodesTo(arena, base + HEADER_SIZE);
+
+        int genes = base + HEADER_SIZE + nodeCount * NODE_SIZE;
+        for(int i = 0; i < geneCount; i++) {
+            writeGene(arena, genes + i * geneSize,
+                    better.getInnovation(i),
+                    better.getInSlot(i),
+                    better.getOutSlot(i),
+                    isEnabled[i],
+                    weights[i]);
+        }
+
+        int plan = genes + geneCount * geneSize;
+        for(int i = 0; i < planCount; i++) {
+            arena.putInt(plan + i * PLAN_ENTRY_SIZE, enabledGenes[order[i]]);
+        }
+
+        return index;
+    }
+
+    /**
+     * Reserves space for a new record, writes its header and adds it to the
+     * offset table
+     * @param nodeCount Amount of node genes
+     * @param geneCount Amount of connection genes
+     * @param planCount Amount of plan entries
+     * @return Returns the index of the new record
+     */
+    int reserve(int nodeCount, int geneCount, int planCount)
+    {
+        long bytes = (long) HEADER_SIZE
+                + (long) nodeCount * NODE_SIZE
+                + (long) geneCount * geneSize
+                + (long) planCount * PLAN_ENTRY_SIZE;
+        // Keep every record aligned to eight bytes
+        bytes = (bytes + 7) & ~7L;
+        if(bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Genome too large for an arena");
+        }
+
+        // Move on to the next arena if the record does not fit
+        if(arenas.isEmpty()
+                || arenaPosition + bytes > arenas.get(currentArena).capacity()) {
+            if(!arenas.isEmpty()) {
+                currentArena++;
+            }
+            // Skip arenas which are too small for the record
+            while(currentArena < arenas.size()
+                    && arenas.get(currentArena).capacity() < bytes) {
+                currentArena++;
+            }
+            if(currentArena == arenas.size()) {
+                arenas.add(ByteBuffer
+                        .allocateDirect((int) Math.max(arenaSize, bytes))
+                        .order(ByteOrder.nativeOrder()));
+            }
+            arenaPosition = 0;
+        }
+
+        if(size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+        }
+
+        int base = arenaPosition;
+        offsets[size] = ((long) currentArena << 32) | base;
+        arenaPosition += (int) bytes;
+        usedBytes += bytes;
+
+        ByteBuffer arena = arenas.get(currentArena);
+        arena.putInt(base + NODE_COUNT, nodeCount);
+        arena.putInt(base + GENE_COUNT, geneCount);
+        arena.putInt(base + PLAN_COUNT, planCount);
+        arena.putInt(base + ACTIVATION, 0);
+        arena.putDouble(base + FITNESS, 0.0);
+
+        return size++;
+    }
+
+    /**
+     * Writes a single connection gene
+     * @param arena Arena to be written to
+     * @param position Position of the gene inside the arena
+     * @param innovation Innovation number of the gene
+     * @param inSlot Slot of the input node
+     * @param outSlot Slot of the output node
+     * @param isEnabled Whether or not the connection is active
+     * @param weight Weight of the connection, stored in the precision of the
+     * population
+     */
+    void writeGene(
+            ByteBuffer arena,
+            int position,
+            int innovation,
+            int inSlot,
+            int outSlot,
+            boolean isEnabled,
+            double weight)
+    {
+        arena.putInt(position, innovation);
+        arena.putInt(position + 4, inSlot);
+        arena.putInt(position + 8, outSlot);
+        arena.putInt(position + 12, isEnabled ? 1 : 0);
+        if(isFloat) {
+            arena.putFloat(position + WEIGHT, (float) weight);
+        } else {
+            arena.putDouble(position + WEIGHT, weight);
+        }
+    }
+}
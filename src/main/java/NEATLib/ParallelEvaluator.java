@@ -0,0 +1,135 @@
+package NEATLib;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Evaluates the networks of a generation on several threads. If there are
+ * fewer networks than threads, the episodes of a single network are split
+ * into shards which run in parallel on private copies of the network. The
+ * results of all shards are summed up through NEAT.addFitness.
+ */
+public class ParallelEvaluator
+{
+    /**
+     * Fitness function rating a single episode or data shard
+     */
+    public interface EpisodeFitness
+    {
+        /**
+         * Rates a network on a single episode. Use NEAT.processNetwork with
+         * the provided network to process inputs. Has to be thread-safe.
+         * @param network The network to be rated, owned by the calling thread
+         * @param episode Number of the episode
+         * @return Returns the fitness gained in the episode
+         */
+        double evaluate(NEATNetwork network, int episode);
+    }
+
+    // Pool running the evaluations
+    ForkJoinPool pool;
+
+    // *STRUCTORS --------------------------------------------------------------
+
+    /**
+     * Constructor for an evaluator running on the common pool
+     */
+    public ParallelEvaluator()
+    {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for an evaluator running on the given pool
+     * @param pool Pool running the evaluations
+     */
+    public ParallelEvaluator(ForkJoinPool pool)
+    {
+        this.pool = pool;
+    }
+
+    // METHODS -----------------------------------------------------------------
+
+    /**
+     * Evaluates every network of the current generation and adds the fitness
+     * @param neat The NEAT instance holding the networks
+     * @param episodes Amount of episodes per network
+     * @param fitness The fitness function
+     */
+    public void evaluate(NEAT neat, int episodes, EpisodeFitness fitness)
+    {
+        int networks = neat.getNetworkCount();
+        if(networks == 0) {return;}
+
+        // Only split the episodes if the networks alone cannot fill the pool
+        int shards = Math.max(1, Math.min(episodes, pool.getParallelism() / networks));
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for(int i = 0; i < networks; i++) {
+            submitShards(neat, i, episodes, shards, fitness, tasks);
+        }
+
+        for(ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+    }
+
+    /**
+     * Evaluates a single network, splitting its episodes over all threads
+     * @param neat The NEAT instance holding the networks
+     * @param index Index of the network
+     * @param episodes Amount of episodes
+     * @param fitness The fitness function
+     */
+    public void evaluate(NEAT neat, int index, int episodes, EpisodeFitness fitness)
+    {
+        int shards = Math.max(1, Math.min(episodes, pool.getParallelism()));
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        submitShards(neat, index, episodes, shards, fitness, tasks);
+
+        for(ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+    }
+
+    /**
+     * Splits the episodes of a network into shards and submits them
+     * @param neat The NEAT instance holding the networks
+     * @param index Index of the network
+     * @param episodes Amount of episodes
+     * @param shards Amount of shards
+     * @param fitness The fitness function
+     * @param tasks List receiving the submitted tasks
+     */
+    void submitShards(
+            NEAT neat,
+            int index,
+            int episodes,
+            int shards,
+            EpisodeFitness fitness,
+            List<ForkJoinTask<?>> tasks)
+    {
+        NEATNetwork network = neat.getNetwork(index);
+
+        for(int s = 0; s < shards; s++) {
+            int first = (int) ((long) episodes * s / shards);
+            int last = (int) ((long) episodes * (s + 1) / shards);
+            boolean isShared = shards > 1;
+
+            tasks.add(pool.submit(() -> {
+                // Processing alters the network, so shards work on copies
+                NEATNetwork worker = isShared ? new NEATNetwork(network) : network;
+                double sum = 0;
+
+                for(int e = first; e < last; e++) {
+                    sum += fitness.evaluate(worker, e);
+                }
+
+                neat.addFitness(sum, index);
+            }));
+        }
+    }
+}
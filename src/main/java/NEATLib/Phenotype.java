@@ -0,0 +1,849 @@
+package NEATLib;
+
+import java.util.Arrays;
+
+import NEATLib.NEATNetwork.Connection;
+import NEATLib.NEATNetwork.Node;
+import NEATLib.NEATNetwork.Type;
+
+/**
+ * Compiled form of a network used for processing. Nodes and connections get
+ * a fixed slot in primitive arrays, and the enabled connections are linked
+ * into lists of outgoing and incoming edges per node.
+ *
+ * Evaluation rule, the one networks always followed: the enabled connections
+ * are taken in ascending order of the layer number of their input node, ties
+ * in ascending order of their innovation number. A node is activated when
+ * the first of its outgoing connections is taken, an output node without any
+ * at the end. A connection hands its value to its output node when it is
+ * taken. If that node has already been activated, the value is only used in
+ * the next call. Such delayed edges, e.g. recurrent connections, act as a
+ * one step memory, which starts at zero for a new or copied network.
+ *
+ * The nodes are kept sorted after their layer number and the lowest
+ * innovation number of their outgoing edges, nodes without outgoing edges
+ * last, which is the order in which they are activated. Processing walks
+ * the nodes in that order once, pushing the value of every node along its
+ * outgoing edges, and keeps the value of every edge for the next call. CompactGenome and GenomeView order their
+ * genes through the same rule, see orderGenes, but keep no values between
+ * calls.
+ *
+ * The phenotype is patched in place when its network mutates: a new weight
+ * overwrites a single slot, a new or removed connection only moves its input
+ * node within the order and reclassifies the edges leading into that node,
+ * and a new node is sorted into the order.
+ */
+class Phenotype
+{
+    // Reference to the NEAT instance
+    NEAT reference;
+    // Number of input and output values
+    int inputs;
+    int outputs;
+    // Activation function of all nodes
+    Activation activation;
+
+    //// NODES, indexed by slot
+    // Amount of nodes
+    int nodeCount = 0;
+    // Type ordinal of every node
+    byte[] nodeTypes;
+    // Index into the input or output array of every input and output node
+    int[] nodeIndices;
+    // Layer number of every node
+    double[] layers;
+    // Lowest innovation number of the outgoing enabled edges of every node,
+    // Integer.MAX_VALUE if there are none
+    int[] minOut;
+    // First outgoing and incoming enabled edge of every node, -1 if none
+    int[] firstOut;
+    int[] firstIn;
+    // Position of every node in the processing order
+    int[] positions;
+    // Node slots in processing order
+    int[] order;
+
+    //// EDGES, indexed by slot
+    // Amount of edges, enabled or not
+    int edgeCount = 0;
+    // Input and output node slot of every edge
+    int[] edgeIn;
+    int[] edgeOut;
+    // Next edge in the outgoing list of the input node, -1 at the end
+    int[] nextOut;
+    // Next edge in the incoming list of the output node, -1 at the end
+    int[] nextIn;
+    /* Weight of every edge. Depending on the precision of the NEAT instance
+     * only one of the two arrays is in use, the other one is null. */
+    double[] weights;
+    float[] floatWeights;
+    // Innovation number of every edge
+    int[] innovations;
+    // Whether or not an edge is linked into the lists
+    boolean[] linked;
+    // Whether or not a linked edge reaches its output node only after that
+    // node has been activated
+    boolean[] delayed;
+    // Amount of delayed edges
+    int delayedCount = 0;
+    // Value every edge delivered in the last call
+    double[] carried;
+
+    // Rows processed at once by the batched processing, small enough for the
+    // sums of a few dozen nodes to stay in the cache
+    static final int TILE = 256;
+
+    // *STRUCTORS --------------------------------------------------------------
+
+    /**
+     * Compiles a network. Assigns a slot to every node and connection of the
+     * network, links the enabled connections and sorts the nodes.
+     * @param network The network to be compiled
+     */
+    Phenotype(NEATNetwork network)
+    {
+        reference = network.reference;
+        inputs = network.inputs;
+        outputs = network.outputs;
+        activation = network.activation;
+        allocateNodes(Math.max(4, network.nodes.size()));
+        allocateEdges(Math.max(4, network.connections.size()));
+        storeWeights(reference.PRECISION);
+
+        for(Node n : network.nodes) {
+            n.phenotypeSlot = nodeCount;
+            appendNode(n);
+        }
+
+        for(Connection c : network.connections) {
+            insertEdge(c);
+            linked[c.edgeSlot] = c.enabled;
+        }
+        relink();
+    }
+
+    /**
+     * Constructor for an empty phenotype, used to order the genes of other
+     * genome representations
+     */
+    Phenotype()
+    {
+        allocateNodes(4);
+        allocateEdges(4);
+    }
+
+    /**
+     * Constructor to return a deep copy of the provided phenotype
+     * @param old The phenotype to be copied
+     */
+    Phenotype(Phenotype old)
+    {
+        reference = old.reference;
+        inputs = old.inputs;
+        outputs = old.outputs;
+        activation = old.activation;
+        allocateNodes(Math.max(4, old.nodeCount));
+        allocateEdges(Math.max(4, old.edgeCount));
+        copyFrom(old);
+    }
+
+    // METHODS -----------------------------------------------------------------
+
+    /**
+     * Turns this phenotype into a copy of another one, reusing the arrays if
+     * they are large enough. The copy starts with no values carried over.
+     * @param old The phenotype to be copied
+     */
+    void copyFrom(Phenotype old)
+    {
+        reference = old.reference;
+        inputs = old.inputs;
+        outputs = old.outputs;
+        activation = old.activation;
+        if(nodeTypes.length < old.nodeCount) {
+            allocateNodes(old.nodeTypes.length);
+        }
+        if(edgeIn.length < old.edgeCount) {
+            allocateEdges(old.edgeIn.length);
+        }
+        if(old.isFloat() != isFloat()) {
+            storeWeights(old.isFloat() ? Precision.FLOAT : Precision.DOUBLE);
+        }
+
+        nodeCount = old.nodeCount;
+        System.arraycopy(old.nodeTypes, 0, nodeTypes, 0, nodeCount);
+        System.arraycopy(old.nodeIndices, 0, nodeIndices, 0, nodeCount);
+        System.arraycopy(old.layers, 0, layers, 0, nodeCount);
+        System.arraycopy(old.minOut, 0, minOut, 0, nodeCount);
+        System.arraycopy(old.firstOut, 0, firstOut, 0, nodeCount);
+        System.arraycopy(old.firstIn, 0, firstIn, 0, nodeCount);
+        System.arraycopy(old.positions, 0, positions, 0, nodeCount);
+        System.arraycopy(old.order, 0, order, 0, nodeCount);
+
+        edgeCount = old.edgeCount;
+        System.arraycopy(old.edgeIn, 0, edgeIn, 0, edgeCount);
+        System.arraycopy(old.edgeOut, 0, edgeOut, 0, edgeCount);
+        System.arraycopy(old.nextOut, 0, nextOut, 0, edgeCount);
+        System.arraycopy(old.nextIn, 0, nextIn, 0, edgeCount);
+        if(isFloat()) {
+            System.arraycopy(old.floatWeights, 0, floatWeights, 0, edgeCount);
+        } else {
+            System.arraycopy(old.weights, 0, weights, 0, edgeCount);
+        }
+        System.arraycopy(old.innovations, 0, innovations, 0, edgeCount);
+        System.arraycopy(old.linked, 0, linked, 0, edgeCount);
+        System.arraycopy(old.delayed, 0, delayed, 0, edgeCount);
+        delayedCount = old.delayedCount;
+        Arrays.fill(carried, 0, edgeCount, 0.0);
+    }
+
+    /**
+     * Orders the enabled genes of a genome after the evaluation rule of a
+     * phenotype. Reuses the arrays of this phenotype, so ordering many
+     * genomes with the same phenotype allocates nothing once it is large
+     * enough.
+     * @param nodeCount Amount of nodes of the genome
+     * @param layers Layer number of every node
+     * @param inSlots Node slot of the input node of every enabled gene, the
+     * genes sorted ascending after their innovation number
+     * @param outSlots Node slot of the output node of every enabled gene
+     * @param geneCount Amount of enabled genes
+     * @param plan Array receiving the indices of the genes which are not
+     * delayed, sorted after the position of their input node in the
+     * processing order
+     * @return Returns the amount of genes which are not delayed
+     */
+    int orderGenes(int nodeCount, double[] layers, int[] inSlots, int[] outSlots, int geneCount, int[] plan)
+    {
+        if(nodeTypes.length < nodeCount) {
+            allocateNodes(nodeCount);
+        }
+        if(edgeIn.length < geneCount) {
+            allocateEdges(geneCount);
+        }
+
+        this.nodeCount = nodeCount;
+        System.arraycopy(layers, 0, this.layers, 0, nodeCount);
+
+        // The genes are sorted, so their index stands in for the innovation
+        edgeCount = geneCount;
+        for(int e = 0; e < geneCount; e++) {
+            edgeIn[e] = inSlots[e];
+            edgeOut[e] = outSlots[e];
+            innovations[e] = e;
+            linked[e] = true;
+        }
+        relink();
+
+        int count = 0;
+        for(int p = 0; p < nodeCount; p++) {
+            for(int e = firstOut[order[p]]; e >= 0; e = nextOut[e]) {
+                if(!delayed[e]) {
+                    plan[count++] = e;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Processes the phenotype with a given input. Keeps the value of every
+     * edge for the next call, so only one thread may process at a time.
+     * @param input Array of input values
+     * @return Returns an array corresponding to the calculated outputs
+     */
+    double[] process(double[] input)
+    {
+        Precision precision = reference.PRECISION;
+        Activation activation = this.activation;
+        double modifier = reference.SIGMOID_MODIFIER;
+        double[] sums = new double[nodeCount];
+        double[] output = new double[outputs];
+
+        // Delayed edges deliver the value of the last call
+        if(delayedCount > 0) {
+            for(int e = 0; e < edgeCount; e++) {
+                if(delayed[e]) {
+                    sums[edgeOut[e]] += carried[e];
+                }
+            }
+        }
+
+        for(int p = 0; p < nodeCount; p++) {
+            int node = order[p];
+            double value;
+
+            if(nodeTypes[node] == Type.INPUT.ordinal()) {
+                value = precision.round(input[nodeIndices[node]]);
+            } else {
+                value = precision.round(activation.apply(sums[node], modifier));
+
+                if(nodeTypes[node] == Type.OUTPUT.ordinal()) {
+                    output[nodeIndices[node]] = value;
+                }
+            }
+
+            // Push the value along the outgoing edges
+            for(int e = firstOut[node]; e >= 0; e = nextOut[e]) {
+                double product = precision.round(value * precision.round(getWeight(e)));
+                carried[e] = product;
+
+                if(!delayed[e]) {
+                    sums[edgeOut[e]] += product;
+                }
+            }
+        }
+
+        return output;
+    }
+
+    /**
+     * Processes a batch of input rows. The inputs and outputs are laid out
+     * column by column, so every connection becomes a multiply-add over a
+     * contiguous run of rows and every activation a loop over the same, both
+     * of which the JIT compiler turns into vector instructions. The explicit
+     * jdk.incubator.vector API is not used, since as an incubator module it
+     * needs --add-modules when compiling and running. Rows are processed in
+     * tiles of TILE. Only for phenotypes without delayed edges, which is the
+     * same as processing the rows one after another. The values of the last
+     * row are kept for the next call.
+     * @param inputs Array of input columns, each holding a value per row
+     * @param batch Amount of rows
+     * @return Returns an array of output columns, each holding a value per row
+     */
+    double[][] processBatch(double[][] inputs, int batch)
+    {
+        Precision precision = reference.PRECISION;
+        boolean isRounded = precision != Precision.DOUBLE;
+        double modifier = reference.SIGMOID_MODIFIER;
+        double[][] output = new double[outputs][batch];
+        double[][] sums = new double[nodeCount][Math.min(TILE, batch)];
+        double[] values = new double[Math.min(TILE, batch)];
+
+        for(int start = 0; start < batch; start += TILE) {
+            int length = Math.min(TILE, batch - start);
+            if(start > 0) {
+                for(double[] sum : sums) {
+                    Arrays.fill(sum, 0, length, 0.0);
+                }
+            }
+
+            for(int p = 0; p < nodeCount; p++) {
+                int node = order[p];
+
+                if(nodeTypes[node] == Type.INPUT.ordinal()) {
+                    System.arraycopy(inputs[nodeIndices[node]], start, values, 0, length);
+                } else {
+                    activation.apply(sums[node], values, length, modifier);
+                }
+
+                if(isRounded) {
+                    for(int b = 0; b < length; b++) {
+                        values[b] = precision.round(values[b]);
+                    }
+                }
+
+                if(nodeTypes[node] == Type.OUTPUT.ordinal()) {
+                    System.arraycopy(values, 0, output[nodeIndices[node]], start, length);
+                }
+
+                // Push the values along the outgoing edges
+                for(int e = firstOut[node]; e >= 0; e = nextOut[e]) {
+                    double weight = isRounded ? precision.round(getWeight(e)) : getWeight(e);
+                    double[] sum = sums[edgeOut[e]];
+
+                    if(isRounded) {
+                        for(int b = 0; b < length; b++) {
+                            sum[b] += precision.round(values[b] * weight);
+                        }
+                    } else {
+                        for(int b = 0; b < length; b++) {
+                            sum[b] += values[b] * weight;
+                        }
+                    }
+
+                    if(start + length == batch) {
+                        double last = values[length - 1] * weight;
+                        carried[e] = isRounded ? precision.round(last) : last;
+                    }
+                }
+            }
+        }
+
+        return output;
+    }
+
+    /**
+     * Calculates an upper bound for the deviation of the outputs from their
+     * exact values, if every weight deviates by at most an absolute and a
+     * relative error and every input, product and activation is rounded with
+     * at most the relative error.
+     * @param inputMagnitude Largest absolute value of any input
+     * @param weightError Absolute error of every weight
+     * @param roundingError Relative error of every weight and rounded value
+     * @return Returns the largest possible deviation of any output
+     */
+    double getErrorBound(double inputMagnitude, double weightError, double roundingError)
+    {
+        // Lipschitz constant and range of the activation function
+        double lipschitz = activation.getLipschitz(reference.SIGMOID_MODIFIER);
+        double range = activation.getMagnitude();
+        double span = range - activation.getMinimum();
+        if(Double.isInfinite(range)) {return Double.POSITIVE_INFINITY;}
+
+        // Accumulated error of the summed input of every node
+        double[] sumErrors = new double[nodeCount];
+        double bound = 0;
+
+        // The value a delayed edge carries over stems from an activated node,
+        // so its error is limited by the range of the activation function
+        for(int e = 0; e < edgeCount; e++) {
+            if(delayed[e]) {
+                sumErrors[edgeOut[e]] += getEdgeError(e, range, span, weightError, roundingError);
+            }
+        }
+
+        for(int p = 0; p < nodeCount; p++) {
+            int node = order[p];
+            // Bound on the absolute value and the error of the node
+            double magnitude;
+            double error;
+
+            if(nodeTypes[node] == Type.INPUT.ordinal()) {
+                magnitude = inputMagnitude;
+                error = inputMagnitude * roundingError;
+            } else {
+                magnitude = range;
+                error = Math.min(span, lipschitz * sumErrors[node] + range * roundingError);
+
+                if(nodeTypes[node] == Type.OUTPUT.ordinal()) {
+                    bound = Math.max(bound, error);
+                }
+            }
+
+            for(int e = firstOut[node]; e >= 0; e = nextOut[e]) {
+                if(!delayed[e]) {
+                    sumErrors[edgeOut[e]] += getEdgeError(e, magnitude, error, weightError, roundingError);
+                }
+            }
+        }
+
+        return bound;
+    }
+
+    /**
+     * @param e Slot of the edge
+     * @param magnitude Bound on the absolute value of the input node
+     * @param error Bound on the error of the input node
+     * @param weightError Absolute error of every weight
+     * @param roundingError Relative error of every weight and rounded value
+     * @return Returns the largest possible error of the value the edge
+     * delivers
+     */
+    double getEdgeError(int e, double magnitude, double error, double weightError, double roundingError)
+    {
+        double weight = Math.abs(getWeight(e));
+        double deviation = weightError + weight * roundingError;
+
+        return weight * error
+                + magnitude * deviation
+                + (weight + deviation) * (magnitude + error) * roundingError;
+    }
+
+    /**
+     * Overwrites the weight of a connection
+     * @param c The connection whose weight changed
+     */
+    void setWeight(Connection c)
+    {
+        setWeight(c.edgeSlot, c.weight);
+    }
+
+    /**
+     * @param edge Slot of the edge
+     * @return Returns the weight of the edge
+     */
+    double getWeight(int edge)
+    {
+        return floatWeights != null ? floatWeights[edge] : weights[edge];
+    }
+
+    /**
+     * Sets the weight of an edge in the precision it is stored in
+     * @param edge Slot of the edge
+     * @param weight The new weight
+     */
+    void setWeight(int edge, double weight)
+    {
+        if(floatWeights != null) {
+            floatWeights[edge] = (float) weight;
+        } else {
+            weights[edge] = weight;
+        }
+    }
+
+    /**
+     * @return Returns whether the weights are stored as floats
+     */
+    boolean isFloat()
+    {
+        return floatWeights != null;
+    }
+
+    /**
+     * Stores the weights in the given precision from now on, converting the
+     * ones stored so far
+     * @param precision The precision of the NEAT instance
+     */
+    void storeWeights(Precision precision)
+    {
+        int capacity = edgeIn.length;
+
+        if(precision == Precision.FLOAT) {
+            float[] converted = new float[capacity];
+            for(int e = 0; e < edgeCount; e++) {
+                converted[e] = (float) getWeight(e);
+            }
+            floatWeights = converted;
+            weights = null;
+        } else {
+            double[] converted = new double[capacity];
+            for(int e = 0; e < edgeCount; e++) {
+                converted[e] = getWeight(e);
+            }
+            weights = converted;
+            floatWeights = null;
+        }
+    }
+
+    /**
+     * Adds a connection, assigning it the next edge slot. Enabled
+     * connections are linked right away.
+     * @param c The new connection
+     */
+    void addEdge(Connection c)
+    {
+        insertEdge(c);
+
+        if(c.enabled) {
+            link(c.edgeSlot);
+        }
+    }
+
+    /**
+     * Assigns a connection the next edge slot without linking it
+     * @param c The new connection
+     */
+    void insertEdge(Connection c)
+    {
+        if(edgeCount == edgeIn.length) {
+            allocateEdges(edgeCount * 2);
+        }
+
+        int edge = edgeCount++;
+        c.edgeSlot = edge;
+        edgeIn[edge] = c.inRef.phenotypeSlot;
+        edgeOut[edge] = c.outRef.phenotypeSlot;
+        setWeight(edge, c.weight);
+        innovations[edge] = c.innovationNumber;
+        linked[edge] = false;
+        delayed[edge] = false;
+        carried[edge] = 0;
+    }
+
+    /**
+     * Brings the edge of a connection in line with its enabled flag
+     * @param c The connection whose enabled flag might have changed
+     */
+    void setEnabled(Connection c)
+    {
+        if(c.enabled && !linked[c.edgeSlot]) {
+            link(c.edgeSlot);
+        } else if(!c.enabled && linked[c.edgeSlot]) {
+            unlink(c.edgeSlot);
+        }
+    }
+
+    /**
+     * Adds a node and sorts it into the processing order
+     * @param n The new node
+     */
+    void addNode(Node n)
+    {
+        if(nodeCount == nodeTypes.length) {
+            allocateNodes(nodeCount * 2);
+        }
+
+        n.phenotypeSlot = nodeCount;
+        appendNode(n);
+        move(n.phenotypeSlot);
+    }
+
+    /**
+     * Writes a node into the next free slot, at the end of the processing
+     * order
+     * @param n The node
+     */
+    void appendNode(Node n)
+    {
+        int slot = nodeCount++;
+        nodeTypes[slot] = (byte) n.t.ordinal();
+        nodeIndices[slot] = n.t == Type.OUTPUT ? n.nodeID - inputs : n.nodeID;
+        layers[slot] = n.layerNumber;
+        minOut[slot] = Integer.MAX_VALUE;
+        firstOut[slot] = -1;
+        firstIn[slot] = -1;
+        order[slot] = slot;
+        positions[slot] = slot;
+    }
+
+    /**
+     * Links an edge into the lists of its nodes. If it is the outgoing edge
+     * with the lowest innovation number, its input node moves within the
+     * processing order.
+     * @param edge Slot of the edge
+     */
+    void link(int edge)
+    {
+        int from = edgeIn[edge];
+        insert(edge);
+        carried[edge] = 0;
+
+        if(innovations[edge] < minOut[from]) {
+            minOut[from] = innovations[edge];
+            move(from);
+            classifyIncoming(from);
+        }
+        classify(edge);
+    }
+
+    /**
+     * Puts an edge in front of the lists of its nodes
+     * @param edge Slot of the edge
+     */
+    void insert(int edge)
+    {
+        int from = edgeIn[edge];
+        int to = edgeOut[edge];
+
+        nextOut[edge] = firstOut[from];
+        firstOut[from] = edge;
+        nextIn[edge] = firstIn[to];
+        firstIn[to] = edge;
+        linked[edge] = true;
+    }
+
+    /**
+     * Links all enabled edges anew and sorts the nodes
+     */
+    void relink()
+    {
+        Arrays.fill(firstOut, 0, nodeCount, -1);
+        Arrays.fill(firstIn, 0, nodeCount, -1);
+        Arrays.fill(minOut, 0, nodeCount, Integer.MAX_VALUE);
+        for(int e = 0; e < edgeCount; e++) {
+            delayed[e] = false;
+            if(linked[e]) {
+                insert(e);
+                minOut[edgeIn[e]] = Math.min(minOut[edgeIn[e]], innovations[e]);
+            }
+        }
+
+        // Insertion sort, genomes are small
+        for(int p = 0; p < nodeCount; p++) {
+            int node = p;
+            int q = p;
+            while(q > 0 && compareNodes(node, order[q - 1]) < 0) {
+                order[q] = order[q - 1];
+                q--;
+            }
+            order[q] = node;
+        }
+        for(int p = 0; p < nodeCount; p++) {
+            positions[order[p]] = p;
+        }
+
+        delayedCount = 0;
+        for(int e = 0; e < edgeCount; e++) {
+            if(linked[e]) {
+                classify(e);
+            }
+        }
+    }
+
+    /**
+     * Removes an edge from the lists of its nodes. If it was the outgoing
+     * edge with the lowest innovation number, its input node moves within
+     * the processing order.
+     * @param edge Slot of the edge
+     */
+    void unlink(int edge)
+    {
+        int from = edgeIn[edge];
+        int to = edgeOut[edge];
+
+        if(firstOut[from] == edge) {
+            firstOut[from] = nextOut[edge];
+        } else {
+            int e = firstOut[from];
+            while(nextOut[e] != edge) {
+                e = nextOut[e];
+            }
+            nextOut[e] = nextOut[edge];
+        }
+
+        if(firstIn[to] == edge) {
+            firstIn[to] = nextIn[edge];
+        } else {
+            int e = firstIn[to];
+            while(nextIn[e] != edge) {
+                e = nextIn[e];
+            }
+            nextIn[e] = nextIn[edge];
+        }
+
+        linked[edge] = false;
+        carried[edge] = 0;
+        if(delayed[edge]) {
+            delayed[edge] = false;
+            delayedCount--;
+        }
+
+        if(innovations[edge] == minOut[from]) {
+            minOut[from] = Integer.MAX_VALUE;
+            for(int e = firstOut[from]; e >= 0; e = nextOut[e]) {
+                minOut[from] = Math.min(minOut[from], innovations[e]);
+            }
+            move(from);
+            classifyIncoming(from);
+        }
+    }
+
+    /**
+     * Compares two nodes after the point in which they are activated. Nodes
+     * without outgoing edges are activated at the end.
+     * @param a Slot of the first node
+     * @param b Slot of the second node
+     * @return Returns a negative value if a comes first, a positive one if b
+     * comes first
+     */
+    int compareNodes(int a, int b)
+    {
+        boolean isLastA = minOut[a] == Integer.MAX_VALUE;
+        boolean isLastB = minOut[b] == Integer.MAX_VALUE;
+        if(isLastA != isLastB) {
+            return isLastA ? 1 : -1;
+        }
+        if(layers[a] != layers[b]) {
+            return layers[a] < layers[b] ? -1 : 1;
+        }
+        if(minOut[a] != minOut[b]) {
+            return minOut[a] < minOut[b] ? -1 : 1;
+        }
+        return a - b;
+    }
+
+    /**
+     * Moves a node whose position in the processing order might have changed
+     * to its new position, shifting the nodes in between by one
+     * @param node Slot of the node
+     */
+    void move(int node)
+    {
+        int p = positions[node];
+
+        while(p > 0 && compareNodes(node, order[p - 1]) < 0) {
+            order[p] = order[p - 1];
+            positions[order[p]] = p;
+            p--;
+        }
+        while(p + 1 < nodeCount && compareNodes(node, order[p + 1]) > 0) {
+            order[p] = order[p + 1];
+            positions[order[p]] = p;
+            p++;
+        }
+
+        order[p] = node;
+        positions[node] = p;
+    }
+
+    /**
+     * Decides whether a linked edge is delayed: it is taken after its output
+     * node has been activated, i.e. the output node has an outgoing edge and
+     * the input node has a higher layer number, or the same one and the
+     * output node has an outgoing edge with a lower innovation number
+     * @param edge Slot of the edge
+     */
+    void classify(int edge)
+    {
+        int to = edgeOut[edge];
+        double fromLayer = layers[edgeIn[edge]];
+        double toLayer = layers[to];
+        boolean isDelayed = minOut[to] != Integer.MAX_VALUE
+                && (fromLayer > toLayer || (fromLayer == toLayer && innovations[edge] >= minOut[to]));
+
+        if(isDelayed != delayed[edge]) {
+            delayed[edge] = isDelayed;
+            delayedCount += isDelayed ? 1 : -1;
+        }
+    }
+
+    /**
+     * Classifies the edges leading into a node anew
+     * @param node Slot of the node
+     */
+    void classifyIncoming(int node)
+    {
+        for(int e = firstIn[node]; e >= 0; e = nextIn[e]) {
+            classify(e);
+        }
+    }
+
+    /**
+     * Grows the node arrays
+     * @param capacity The new capacity
+     */
+    void allocateNodes(int capacity)
+    {
+        nodeTypes = nodeTypes == null ? new byte[capacity] : Arrays.copyOf(nodeTypes, capacity);
+        nodeIndices = grow(nodeIndices, capacity);
+        layers = layers == null ? new double[capacity] : Arrays.copyOf(layers, capacity);
+        minOut = grow(minOut, capacity);
+        firstOut = grow(firstOut, capacity);
+        firstIn = grow(firstIn, capacity);
+        positions = grow(positions, capacity);
+        order = grow(order, capacity);
+    }
+
+    /**
+     * Grows the edge arrays
+     * @param capacity The new capacity
+     */
+    void allocateEdges(int capacity)
+    {
+        edgeIn = grow(edgeIn, capacity);
+        edgeOut = grow(edgeOut, capacity);
+        nextOut = grow(nextOut, capacity);
+        nextIn = grow(nextIn, capacity);
+        if(floatWeights != null) {
+            floatWeights = Arrays.copyOf(floatWeights, capacity);
+        } else {
+            weights = weights == null ? new double[capacity] : Arrays.copyOf(weights, capacity);
+        }
+        innovations = grow(innovations, capacity);
+        linked = linked == null ? new boolean[capacity] : Arrays.copyOf(linked, capacity);
+        delayed = delayed == null ? new boolean[capacity] : Arrays.copyOf(delayed, capacity);
+        carried = carried == null ? new double[capacity] : Arrays.copyOf(carried, capacity);
+    }
+
+    /**
+     * @param array Array to be grown, may be null
+     * @param capacity The new capacity
+     * @return Returns a copy of the array with the new capacity
+     */
+    static int[] grow(int[] array, int capacity)
+    {
+        return array == null ? new int[capacity] : Arrays.copyOf(array, capacity);
+    }
+}
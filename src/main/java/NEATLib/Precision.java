@@ -0,0 +1,30 @@
+package NEATLib;
+
+/**
+ * Numeric precision of the weights and node values during evolution and 
+ * processing
+ * 
+ * FLOAT rounds every weight and value and stores the weights as floats in
+ * CompactGenome, OffHeapPopulation and the phenotype a NEATNetwork is 
+ * processed with. The connection genes of a NEATNetwork keep double fields 
+ * holding the rounded values. The error bound of NEATNetwork.getErrorBound is
+ * a worst case and usually exceeds the observed deviation by orders of 
+ * magnitude.
+ */
+public enum Precision
+{
+    // 64 bit floating point values, the default
+    DOUBLE,
+    // 32 bit floating point values
+    FLOAT;
+    
+    /**
+     * Rounds a value to the nearest value representable in this precision
+     * @param value The value to be rounded
+     * @return Returns the rounded value
+     */
+    public double round(double value)
+    {
+        return this == FLOAT ? (double) (float) value : value;
+    }
+}
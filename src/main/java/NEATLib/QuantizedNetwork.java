@@ -0,0 +1,209 @@
+package NEATLib;
+
+import java.util.Arrays;
+
+import NEATLib.NEATNetwork.Type;
+
+/**
+ * Copy of a network with its weights quantised to 8 or 16 bit integers.
+ * Meant for exporting champions onto memory bound targets. Every weight w is
+ * stored as round(w / scale), so the error of a single weight is bounded by
+ * scale / 2. Like the network, the copy carries the values of delayed
+ * connections over to the next call, starting from the values the network
+ * holds when it is quantised.
+ */
+public class QuantizedNetwork
+{
+    // Bits per stored weight
+    int bits;
+    // Factor to turn a stored weight back into a real one
+    double scale;
+    // Sigmoid modifier of the NEAT instance the network stems from
+    double sigmoidModifier;
+    // Activation function of all nodes
+    Activation activation;
+
+    // Number of input nodes in this network
+    int inputs;
+    // Number of output nodes in this network
+    int outputs;
+
+    // Type ordinal of every node
+    byte[] nodeTypes;
+    // Index into the input or output array of every input and output node
+    int[] nodeIndices;
+    // Node slots in processing order
+    int[] order;
+    // Index of the first outgoing connection of every node in processing
+    // order, followed by the amount of connections
+    int[] firstConnections;
+
+    // Output node slot of every enabled connection, grouped by input node
+    int[] outSlots;
+    // Whether or not a connection is delayed
+    boolean[] delayed;
+    // Value every connection delivered in the last call
+    double[] carried;
+    // Quantised weights, only the one fitting the bits is in use
+    byte[] weights8;
+    short[] weights16;
+
+    // *STRUCTORS --------------------------------------------------------------
+
+    /**
+     * Creates a quantised copy of a network
+     * @param network The network to be quantised
+     * @param bits Bits per weight, either 8 or 16
+     */
+    public QuantizedNetwork(NEATNetwork network, int bits)
+    {
+        if(bits != 8 && bits != 16) {
+            throw new IllegalArgumentException("Only 8 or 16 bit weights are supported");
+        }
+
+        this.bits = bits;
+        inputs = network.inputs;
+        outputs = network.outputs;
+        sigmoidModifier = network.reference.SIGMOID_MODIFIER;
+        activation = network.activation;
+
+        // Take over the nodes and the order of the phenotype
+        network.compile();
+        Phenotype phenotype = network.phenotype;
+        int nodeCount = phenotype.nodeCount;
+        nodeTypes = Arrays.copyOf(phenotype.nodeTypes, nodeCount);
+        nodeIndices = Arrays.copyOf(phenotype.nodeIndices, nodeCount);
+        order = Arrays.copyOf(phenotype.order, nodeCount);
+
+        // Group the enabled connections by their input node
+        int connectionCount = 0;
+        double maxWeight = 0;
+        firstConnections = new int[nodeCount + 1];
+        for(int p = 0; p < nodeCount; p++) {
+            firstConnections[p] = connectionCount;
+            for(int e = phenotype.firstOut[order[p]]; e >= 0; e = phenotype.nextOut[e]) {
+                maxWeight = Math.max(maxWeight, Math.abs(phenotype.getWeight(e)));
+                connectionCount++;
+            }
+        }
+        firstConnections[nodeCount] = connectionCount;
+
+        // Find the scale fitting the largest weight
+        int maxLevel = (1 << (bits - 1)) - 1;
+        scale = maxWeight == 0 ? 1 : maxWeight / maxLevel;
+
+        outSlots = new int[connectionCount];
+        delayed = new boolean[connectionCount];
+        carried = new double[connectionCount];
+        if(bits == 8) {
+            weights8 = new byte[connectionCount];
+        } else {
+            weights16 = new short[connectionCount];
+        }
+
+        int i = 0;
+        for(int p = 0; p < nodeCount; p++) {
+            for(int e = phenotype.firstOut[order[p]]; e >= 0; e = phenotype.nextOut[e]) {
+                outSlots[i] = phenotype.edgeOut[e];
+                delayed[i] = phenotype.delayed[e];
+                carried[i] = phenotype.carried[e];
+
+                long level = Math.round(phenotype.getWeight(e) / scale);
+                if(bits == 8) {
+                    weights8[i] = (byte) level;
+                } else {
+                    weights16[i] = (short) level;
+                }
+                i++;
+            }
+        }
+    }
+
+    // METHODS -----------------------------------------------------------------
+
+    /**
+     * Returns the dequantised weight of a connection
+     * @param index Index of the connection in processing order, grouped by
+     * input node
+     * @return Returns the weight
+     */
+    public double getWeight(int index)
+    {
+        return (bits == 8 ? weights8[index] : weights16[index]) * scale;
+    }
+
+    /**
+     * @return Returns the amount of connections in this network
+     */
+    public int getConnectionCount()
+    {
+        return outSlots.length;
+    }
+
+    /**
+     * @return Returns the upper bound of the error of any single weight
+     */
+    public double getMaxWeightError()
+    {
+        return scale / 2;
+    }
+
+    /**
+     * Processes the net with a given input, the same way the original
+     * network does. Keeps the values of delayed connections for the next
+     * call.
+     * @param input Array of input values
+     * @return Returns an array corresponding to the calculated outputs
+     */
+    public double[] process(double[] input)
+    {
+        int nodeCount = nodeTypes.length;
+        double[] sums = new double[nodeCount];
+        double[] output = new double[outputs];
+
+        // Delayed connections deliver the value of the last call
+        for(int i = 0; i < outSlots.length; i++) {
+            if(delayed[i]) {
+                sums[outSlots[i]] += carried[i];
+            }
+        }
+
+        for(int p = 0; p < nodeCount; p++) {
+            int node = order[p];
+            double value;
+
+            if(nodeTypes[node] == Type.INPUT.ordinal()) {
+                value = input[nodeIndices[node]];
+            } else {
+                value = activate(sums[node]);
+
+                if(nodeTypes[node] == Type.OUTPUT.ordinal()) {
+                    output[nodeIndices[node]] = value;
+                }
+            }
+
+            // Push the value along the outgoing connections
+            for(int i = firstConnections[p]; i < firstConnections[p + 1]; i++) {
+                double product = value * getWeight(i);
+
+                if(delayed[i]) {
+                    carried[i] = product;
+                } else {
+                    sums[outSlots[i]] += product;
+                }
+            }
+        }
+
+        return output;
+    }
+
+    /**
+     * Activation function, identical to the one of the original network
+     * @param x Summed input of the node
+     * @return Returns the activated value
+     */
+    double activate(double x)
+    {
+        return activation.apply(x, sigmoidModifier);
+    }
+}
@@ -0,0 +1,185 @@
+package NEATLib;
+
+import java.util.List;
+
+/**
+ * Plans the reproduction of a generation. Every species receives a share of
+ * the offspring proportional to its mean fitness. The shares are rounded with
+ * the largest remainder method, so the quotas always add up to the amount of
+ * offspring exactly. All of it works on primitive arrays in time linear to
+ * the amount of species.
+ *
+ * Parents are picked through tournaments. The specimen of a species are
+ * sorted by fitness, so a tournament is only a handful of random positions
+ * of which the lowest wins, independent of the size of the species.
+ */
+class ReproductionPlanner
+{
+    // Reference to the NEAT instance
+    NEAT reference;
+    // Amount of offspring of every species of the last plan
+    int[] quotas = new int[0];
+    // Fractional part of the share of every species
+    double[] remainders = new double[0];
+    // Indices of the species taking part in the rounding
+    int[] order = new int[0];
+
+    // *STRUCTORS --------------------------------------------------------------
+
+    /**
+     * Constructor for a planner without a plan
+     * @param ref Reference to the NEAT instance
+     */
+    ReproductionPlanner(NEAT ref)
+    {
+        reference = ref;
+    }
+
+    // METHODS -----------------------------------------------------------------
+
+    /**
+     * Splits the offspring among the species. Species with a mean fitness
+     * below zero receive nothing. Should no species have a positive mean
+     * fitness the offspring is split by the size of the species instead.
+     * @param speciesList List of all species, each sorted by fitness
+     * @param offspring Amount of offspring to split
+     * @return Returns the amount of offspring of every species, indexed like
+     * the species list
+     */
+    int[] plan(List<List<NEATNetwork>> speciesList, int offspring)
+    {
+        int count = speciesList.size();
+        if(quotas.length < count) {
+            quotas = new int[count];
+            remainders = new double[count];
+            order = new int[count];
+        }
+
+        // Mean fitness of every species
+        double total = 0;
+        for(int i = 0; i < count; i++) {
+            List<NEATNetwork> species = speciesList.get(i);
+            double sum = 0;
+            for(NEATNetwork specimen : species) {
+                sum += specimen.fitness;
+            }
+
+            remainders[i] = species.isEmpty() ? 0 : Math.max(sum / species.size(), 0);
+            total += remainders[i];
+        }
+
+        boolean isBySize = !(total > 0) || Double.isInfinite(total);
+        if(isBySize) {
+            total = 0;
+            for(int i = 0; i < count; i++) {
+                remainders[i] = speciesList.get(i).size();
+                total += remainders[i];
+            }
+        }
+
+        // Round every share down and keep the remainder
+        int assigned = 0;
+        int candidates = 0;
+        for(int i = 0; i < count; i++) {
+            double share = total > 0 ? remainders[i] * offspring / total : 0;
+            quotas[i] = (int) share;
+            remainders[i] = share - quotas[i];
+            assigned += quotas[i];
+
+            if(!speciesList.get(i).isEmpty()) {order[candidates++] = i;}
+        }
+
+        // Hand the rest to the species with the largest remainders
+        int rest = Math.min(offspring - assigned, candidates);
+        if(rest > 0) {
+            selectLargest(rest, candidates);
+            for(int k = 0; k < rest; k++) {
+                quotas[order[k]]++;
+            }
+        }
+
+        return quotas;
+    }
+
+    /**
+     * Moves the species with the largest remainders to the front of the
+     * order, in expected linear time. Equal remainders are decided by the
+     * index of the species, so the plan stays reproducible.
+     * @param amount Amount of species to move to the front
+     * @param length Amount of species in the order
+     */
+    void selectLargest(int amount, int length)
+    {
+        int target = amount - 1;
+        int low = 0;
+        int high = length - 1;
+
+        while(low < high) {
+            int pivot = order[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+
+            while(i <= j) {
+                while(isBefore(order[i], pivot)) {i++;}
+                while(isBefore(pivot, order[j])) {j--;}
+
+                if(i <= j) {
+                    int swap = order[i];
+                    order[i] = order[j];
+                    order[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+
+            if(target <= j) {
+                high = j;
+            } else if(target >= i) {
+                low = i;
+            } else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * @param a Index of a species
+     * @param b Index of another species
+     * @return Returns whether species A comes before species B in the
+     * rounding
+     */
+    boolean isBefore(int a, int b)
+    {
+        return remainders[a] > remainders[b] || (remainders[a] == remainders[b] && a < b);
+    }
+
+    /**
+     * Picks a parent through a tournament of TOURNAMENT_SIZE random
+     * specimen, at least one
+     * @param size Amount of specimen of the species
+     * @return Returns the position of the winner in the species
+     */
+    int selectParent(int size)
+    {
+        int winner = (int) (reference.random.nextDouble() * size);
+
+        for(int t = 1; t < reference.TOURNAMENT_SIZE; t++) {
+            winner = Math.min(winner, (int) (reference.random.nextDouble() * size));
+        }
+
+        return winner;
+    }
+
+    /**
+     * Picks a second parent through a tournament among the specimen other
+     * than the first parent
+     * @param size Amount of specimen of the species, at least two
+     * @param first Position of the first parent
+     * @return Returns the position of the winner in the species
+     */
+    int selectMate(int size, int first)
+    {
+        int winner = selectParent(size - 1);
+        return winner < first ? winner : winner + 1;
+    }
+}
@@ -0,0 +1,391 @@
+package NEATLib;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records statistics of every generation of a run into a binary file. The
+ * evolution thread only takes a snapshot of the generation and offers it to a
+ * bounded ring buffer. A background thread drains the buffer and writes the
+ * snapshots. Should the buffer ever be full, the snapshot is dropped and
+ * counted, so the evolution never waits on the disk.
+ *
+ * The file is columnar: after a header of magic number and version it holds
+ * blocks of up to BLOCK_SIZE generations. Every block starts with its amount
+ * of rows, followed by one array per column and finally the sizes of all
+ * species of all rows of the block, in the order of the COLUMNS.
+ */
+public class StatsRecorder implements Closeable
+{
+    // Marks the beginning of a statistics file, "NSTA"
+    static final int MAGIC = 0x4E535441;
+    // Version of the file layout
+    static final int VERSION = 1;
+    // Maximum amount of generations in a single block
+    public static final int BLOCK_SIZE = 256;
+    // Names of the columns, as used in the CSV export
+    public static final String[] COLUMNS = {
+        "generation", "networks", "species", "innovations",
+        "fitness_min", "fitness_q1", "fitness_median", "fitness_q3",
+        "fitness_max", "fitness_mean",
+        "connections_mean", "connections_max", "nodes_mean", "nodes_max",
+        "species_sizes"};
+
+    // Snapshots waiting to be written
+    BlockingQueue<Generation> buffer;
+    // Amount of snapshots dropped because the buffer was full
+    volatile long dropped = 0;
+    // Amount of snapshots written to the file
+    volatile long written = 0;
+
+    // Stream into the file, only used by the writer thread
+    DataOutputStream out;
+    // Snapshots of the block currently being filled
+    List<Generation> block = new ArrayList<>();
+    // Thread writing the snapshots
+    Thread writer;
+    // Whether the recorder is still accepting snapshots
+    volatile boolean isOpen = true;
+    // First error of the writer thread, reported on close
+    volatile IOException failure;
+
+    // *STRUCTORS --------------------------------------------------------------
+
+    /**
+     * Constructor for a recorder writing into a new file
+     * @param file The file to be written, replaced if it exists
+     * @param capacity Amount of snapshots the ring buffer holds
+     * @throws IOException If the file cannot be created
+     */
+    public StatsRecorder(Path file, int capacity) throws IOException
+    {
+        buffer = new ArrayBlockingQueue<>(capacity);
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        writer = new Thread(this::drain, "NEAT statistics writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // METHODS -----------------------------------------------------------------
+
+    /**
+     * Takes a snapshot of a generation right after its speciation and offers
+     * it to the ring buffer
+     * @param neat The NEAT instance holding the generation
+     * @param generation Number of the generation
+     * @param networks The networks of the generation
+     * @param species The species of the generation, empty ones included
+     */
+    void record(
+            NEAT neat,
+            int generation,
+            List<NEATNetwork> networks,
+            List<List<NEATNetwork>> species)
+    {
+        if(!isOpen) {return;}
+
+        Generation g = new Generation();
+        g.generation = generation;
+        g.networks = networks.size();
+        g.innovations = neat.innovationNumber;
+
+        double[] fitnesses = new double[networks.size()];
+        long connections = 0;
+        long nodes = 0;
+        for(int i = 0; i < fitnesses.length; i++) {
+            NEATNetwork specimen = networks.get(i);
+            fitnesses[i] = specimen.fitness;
+            connections += specimen.connections.size();
+            nodes += specimen.nodes.size();
+            g.connectionsMax = Math.max(g.connectionsMax, specimen.connections.size());
+            g.nodesMax = Math.max(g.nodesMax, specimen.nodes.size());
+        }
+
+        if(fitnesses.length > 0) {
+            Arrays.sort(fitnesses);
+            double sum = 0;
+            for(double f : fitnesses) {
+                sum += f;
+            }
+            g.fitnessMin = fitnesses[0];
+            g.fitnessQ1 = quantile(fitnesses, 0.25);
+            g.fitnessMedian = quantile(fitnesses, 0.5);
+            g.fitnessQ3 = quantile(fitnesses, 0.75);
+            g.fitnessMax = fitnesses[fitnesses.length - 1];
+            g.fitnessMean = sum / fitnesses.length;
+            g.connectionsMean = (double) connections / fitnesses.length;
+            g.nodesMean = (double) nodes / fitnesses.length;
+        }
+
+        int count = 0;
+        for(List<NEATNetwork> s : species) {
+            if(!s.isEmpty()) {count++;}
+        }
+        g.speciesSizes = new int[count];
+        count = 0;
+        for(List<NEATNetwork> s : species) {
+            if(!s.isEmpty()) {
+                g.speciesSizes[count++] = s.size();
+            }
+        }
+
+        if(!buffer.offer(g)) {
+            dropped++;
+        }
+    }
+
+    /**
+     * Linearly interpolated quantile of sorted values
+     * @param sorted The sorted values, at least one
+     * @param q The quantile between 0 and 1
+     * @return Returns the quantile
+     */
+    static double quantile(double[] sorted, double q)
+    {
+        double position = q * (sorted.length - 1);
+        int lower = (int) position;
+        int upper = Math.min(lower + 1, sorted.length - 1);
+        return sorted[lower] + (sorted[upper] - sorted[lower]) * (position - lower);
+    }
+
+    /**
+     * Loop of the writer thread. Collects snapshots into blocks until the
+     * recorder is closed and the buffer is empty.
+     */
+    void drain()
+    {
+        try {
+            while(isOpen || !buffer.isEmpty()) {
+                Generation g = buffer.poll(100, TimeUnit.MILLISECONDS);
+                if(g == null) {continue;}
+
+                block.add(g);
+                if(block.size() == BLOCK_SIZE) {
+                    writeBlock();
+                }
+            }
+
+            writeBlock();
+            out.flush();
+        } catch(IOException e) {
+            failure = e;
+        } catch(InterruptedException e) {
+            failure = new IOException("Statistics writer interrupted", e);
+        } finally {
+            isOpen = false;
+            buffer.clear();
+            try {
+                out.close();
+            } catch(IOException e) {
+                if(failure == null) {failure = e;}
+            }
+        }
+    }
+
+    /**
+     * Writes the collected snapshots as a block of columns
+     * @throws IOException If writing fails
+     */
+    void writeBlock() throws IOException
+    {
+        if(block.isEmpty()) {return;}
+
+        out.writeInt(block.size());
+        for(Generation g : block) {out.writeInt(g.generation);}
+        for(Generation g : block) {out.writeInt(g.networks);}
+        for(Generation g : block) {out.writeInt(g.speciesSizes.length);}
+        for(Generation g : block) {out.writeInt(g.innovations);}
+        for(Generation g : block) {out.writeDouble(g.fitnessMin);}
+        for(Generation g : block) {out.writeDouble(g.fitnessQ1);}
+        for(Generation g : block) {out.writeDouble(g.fitnessMedian);}
+        for(Generation g : block) {out.writeDouble(g.fitnessQ3);}
+        for(Generation g : block) {out.writeDouble(g.fitnessMax);}
+        for(Generation g : block) {out.writeDouble(g.fitnessMean);}
+        for(Generation g : block) {out.writeDouble(g.connectionsMean);}
+        for(Generation g : block) {out.writeInt(g.connectionsMax);}
+        for(Generation g : block) {out.writeDouble(g.nodesMean);}
+        for(Generation g : block) {out.writeInt(g.nodesMax);}
+        for(Generation g : block) {
+            for(int size : g.speciesSizes) {
+                out.writeInt(size);
+            }
+        }
+
+        written += block.size();
+        block.clear();
+    }
+
+    /**
+     * @return Returns the amount of snapshots dropped because the ring buffer
+     * was full
+     */
+    public long getDroppedCount()
+    {
+        return dropped;
+    }
+
+    /**
+     * @return Returns the amount of snapshots written to the file so far
+     */
+    public long getWrittenCount()
+    {
+        return written;
+    }
+
+    /**
+     * Stops accepting snapshots, waits until the buffered ones are written
+     * and closes the file
+     * @throws IOException If writing the file failed at any point
+     */
+    @Override
+    public void close() throws IOException
+    {
+        isOpen = false;
+
+        try {
+            writer.join();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing the statistics file", e);
+        }
+
+        if(failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Reads a statistics file
+     * @param file The file written by a recorder
+     * @return Returns the recorded generations in the order of the file
+     * @throws IOException If the file cannot be read or is no statistics file
+     */
+    public static List<Generation> read(Path file) throws IOException
+    {
+        List<Generation> generations = new ArrayList<>();
+
+        try(DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if(in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a statistics file of version " + VERSION);
+            }
+
+            while(true) {
+                int rows;
+                try {
+                    rows = in.readInt();
+                } catch(EOFException e) {
+                    break;
+                }
+
+                Generation[] g = new Generation[rows];
+                for(int i = 0; i < rows; i++) {g[i] = new Generation();}
+                for(int i = 0; i < rows; i++) {g[i].generation = in.readInt();}
+                for(int i = 0; i < rows; i++) {g[i].networks = in.readInt();}
+                for(int i = 0; i < rows; i++) {g[i].speciesSizes = new int[in.readInt()];}
+                for(int i = 0; i < rows; i++) {g[i].innovations = in.readInt();}
+                for(int i = 0; i < rows; i++) {g[i].fitnessMin = in.readDouble();}
+                for(int i = 0; i < rows; i++) {g[i].fitnessQ1 = in.readDouble();}
+                for(int i = 0; i < rows; i++) {g[i].fitnessMedian = in.readDouble();}
+                for(int i = 0; i < rows; i++) {g[i].fitnessQ3 = in.readDouble();}
+                for(int i = 0; i < rows; i++) {g[i].fitnessMax = in.readDouble();}
+                for(int i = 0; i < rows; i++) {g[i].fitnessMean = in.readDouble();}
+                for(int i = 0; i < rows; i++) {g[i].connectionsMean = in.readDouble();}
+                for(int i = 0; i < rows; i++) {g[i].connectionsMax = in.readInt();}
+                for(int i = 0; i < rows; i++) {g[i].nodesMean = in.readDouble();}
+                for(int i = 0; i < rows; i++) {g[i].nodesMax = in.readInt();}
+                for(int i = 0; i < rows; i++) {
+                    for(int s = 0; s < g[i].speciesSizes.length; s++) {
+                        g[i].speciesSizes[s] = in.readInt();
+                    }
+                }
+
+                generations.addAll(Arrays.asList(g));
+            }
+        }
+
+        return generations;
+    }
+
+    /**
+     * Converts a statistics file into CSV with a header line. The species
+     * sizes of a generation are joined by spaces into a single column.
+     * @param file The file written by a recorder
+     * @param csv The CSV file to be written, replaced if it exists
+     * @throws IOException If reading or writing fails
+     */
+    public static void exportCsv(Path file, Path csv) throws IOException
+    {
+        List<Generation> generations = read(file);
+
+        try(BufferedWriter w = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            w.write(String.join(",", COLUMNS));
+            w.newLine();
+
+            for(Generation g : generations) {
+                StringBuilder sizes = new StringBuilder();
+                for(int s = 0; s < g.speciesSizes.length; s++) {
+                    if(s > 0) {sizes.append(' ');}
+                    sizes.append(g.speciesSizes[s]);
+                }
+
+                w.write(g.generation + "," + g.networks + "," + g.speciesSizes.length
+                        + "," + g.innovations
+                        + "," + g.fitnessMin + "," + g.fitnessQ1 + "," + g.fitnessMedian
+                        + "," + g.fitnessQ3 + "," + g.fitnessMax + "," + g.fitnessMean
+                        + "," + g.connectionsMean + "," + g.connectionsMax
+                        + "," + g.nodesMean + "," + g.nodesMax
+                        + "," + sizes);
+                w.newLine();
+            }
+        }
+    }
+
+    // INTERNAL CLASSES --------------------------------------------------------
+
+    /**
+     * Statistics of a single generation
+     */
+    public static class Generation
+    {
+        // Number of the generation, counted from 0
+        public int generation;
+        // Amount of networks
+        public int networks;
+        // Highest innovation number handed out so far
+        public int innovations;
+        // Fitness distribution of the networks
+        public double fitnessMin;
+        public double fitnessQ1;
+        public double fitnessMedian;
+        public double fitnessQ3;
+        public double fitnessMax;
+        public double fitnessMean;
+        // Average and largest amount of connection genes of a network
+        public double connectionsMean;
+        public int connectionsMax;
+        // Average and largest amount of node genes of a network
+        public double nodesMean;
+        public int nodesMax;
+        // Amount of networks in every non-empty species
+        public int[] speciesSizes;
+    }
+}
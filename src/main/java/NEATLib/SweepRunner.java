@@ -0,0 +1,310 @@
+package NEATLib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs many independent NEAT runs with different configurations and seeds
+ * at once on a single shared work-stealing pool. A run ends as soon as its
+ * task is solved, its best fitness has not improved for a given amount of
+ * generations or the generation limit is reached. The runs of every
+ * configuration are summarised and ranked.
+ */
+public class SweepRunner
+{
+    /**
+     * Task the networks of a run are evolved on
+     */
+    public interface Task
+    {
+        /**
+         * Evaluates every network of the current generation, adding the
+         * fitness through NEAT.addFitness. Called for several runs at once,
+         * each with its own NEAT instance.
+         * @param neat The NEAT instance of the run
+         */
+        void evaluate(NEAT neat);
+
+        /**
+         * @param neat The NEAT instance of the run, after evaluation
+         * @return Returns whether the current generation solves the task
+         */
+        boolean isSolved(NEAT neat);
+    }
+
+    // Pool running the runs
+    ForkJoinPool pool;
+    // Shape of the networks
+    int inputs;
+    int outputs;
+    int networks;
+    // Task all runs are evolved on
+    Task task;
+
+    // Maximum amount of generations of a run
+    int maxGenerations = 500;
+    // Amount of generations without improvement after which a run stops
+    int stallGenerations = 50;
+    // Smallest increase of the best fitness counted as improvement
+    double minImprovement = 1e-6;
+
+    // *STRUCTORS --------------------------------------------------------------
+
+    /**
+     * Constructor for a sweep running on the common pool
+     * @param inputs Amount of input nodes
+     * @param outputs Amount of output nodes
+     * @param networks Amount of simultaneous networks per run
+     * @param task Task all runs are evolved on
+     */
+    public SweepRunner(int inputs, int outputs, int networks, Task task)
+    {
+        this(ForkJoinPool.commonPool(), inputs, outputs, networks, task);
+    }
+
+    /**
+     * Constructor for a sweep running on the given pool. Evaluators used by
+     * the task may share the same pool.
+     * @param pool Pool running the runs
+     * @param inputs Amount of input nodes
+     * @param outputs Amount of output nodes
+     * @param networks Amount of simultaneous networks per run
+     * @param task Task all runs are evolved on
+     */
+    public SweepRunner(ForkJoinPool pool, int inputs, int outputs, int networks, Task task)
+    {
+        this.pool = pool;
+        this.inputs = inputs;
+        this.outputs = outputs;
+        this.networks = networks;
+        this.task = task;
+    }
+
+    // METHODS -----------------------------------------------------------------
+
+    /**
+     * Sets the limits of a single run
+     * @param maxGenerations Maximum amount of generations
+     * @param stallGenerations Amount of generations without improvement of
+     * the best fitness after which a run stops
+     */
+    public void setLimits(int maxGenerations, int stallGenerations)
+    {
+        this.maxGenerations = maxGenerations;
+        this.stallGenerations = stallGenerations;
+    }
+
+    /**
+     * Runs every configuration with several seeds and ranks the
+     * configurations. A configuration ranks higher the more of its runs
+     * solved the task, then the fewer generations they needed on average,
+     * then the higher their best fitness was on average.
+     * @param configs The configurations to be compared
+     * @param seeds The seeds every configuration is run with
+     * @return Returns the results of all configurations, best first
+     */
+    public List<Result> run(List<NEATConfig> configs, long[] seeds)
+    {
+        List<ForkJoinTask<Run>> tasks = new ArrayList<>();
+
+        for(NEATConfig config : configs) {
+            for(long seed : seeds) {
+                NEATConfig seeded = new NEATConfig(config);
+                seeded.SEED = seed;
+                tasks.add(pool.submit(() -> runSingle(seeded)));
+            }
+        }
+
+        List<Result> results = new ArrayList<>();
+        for(int c = 0; c < configs.size(); c++) {
+            Run[] runs = new Run[seeds.length];
+            for(int s = 0; s < seeds.length; s++) {
+                runs[s] = tasks.get(c * seeds.length + s).join();
+            }
+            results.add(new Result(configs.get(c), runs));
+        }
+
+        Collections.sort(results, (Result a, Result b) -> {
+            if(a.solved != b.solved) {
+                return b.solved - a.solved;
+            }
+            if(a.meanGenerations != b.meanGenerations) {
+                return Double.compare(a.meanGenerations, b.meanGenerations);
+            }
+            return Double.compare(b.meanBestFitness, a.meanBestFitness);
+        });
+
+        return results;
+    }
+
+    /**
+     * Evolves a single run until it is solved, stalls or hits the limit
+     * @param config Configuration of the run including its seed
+     * @return Returns the outcome of the run
+     */
+    Run runSingle(NEATConfig config)
+    {
+        long start = System.nanoTime();
+        NEAT neat = new NEAT(inputs, outputs, networks, config);
+        Run run = new Run();
+        run.seed = config.SEED;
+        run.bestFitness = Double.NEGATIVE_INFINITY;
+        int lastImprovement = 0;
+
+        for(int generation = 0; generation < maxGenerations; generation++) {
+            task.evaluate(neat);
+            run.generations = generation + 1;
+
+            double fitness = neat.getMaxFitness();
+            if(fitness > run.bestFitness + minImprovement) {
+                run.bestFitness = fitness;
+                lastImprovement = generation;
+            }
+
+            if(task.isSolved(neat)) {
+                run.isSolved = true;
+                break;
+            }
+
+            if(generation - lastImprovement >= stallGenerations) {
+                break;
+            }
+
+            neat.advanceGeneration();
+            neat.resetFitness();
+        }
+
+        run.milliseconds = (System.nanoTime() - start) / 1e6;
+        return run;
+    }
+
+    // INTERNAL CLASSES --------------------------------------------------------
+
+    /**
+     * Outcome of a single run
+     */
+    public static class Run
+    {
+        // Seed of the run
+        public long seed;
+        // Whether the run solved the task
+        public boolean isSolved;
+        // Amount of generations evaluated
+        public int generations;
+        // Best maximum fitness of any generation
+        public double bestFitness;
+        // Wall time of the run
+        public double milliseconds;
+    }
+
+    /**
+     * Summary of all runs of a configuration. The time to solution only
+     * takes the solved runs into account.
+     */
+    public static class Result
+    {
+        // The configuration, without a specific seed
+        public NEATConfig config;
+        // The single runs in the order of the seeds
+        public Run[] runs;
+        // Amount of runs which solved the task
+        public int solved;
+        // Generations needed by the solved runs
+        public double meanGenerations = Double.POSITIVE_INFINITY;
+        public double medianGenerations = Double.POSITIVE_INFINITY;
+        public int minGenerations = Integer.MAX_VALUE;
+        public int maxGenerations = Integer.MAX_VALUE;
+        // Wall time needed by the solved runs
+        public double meanMilliseconds = Double.POSITIVE_INFINITY;
+        public double medianMilliseconds = Double.POSITIVE_INFINITY;
+        // Best fitness averaged over all runs
+        public double meanBestFitness;
+
+        /**
+         * Summarises the runs of a configuration
+         * @param config The configuration
+         * @param runs All runs of the configuration
+         */
+        Result(NEATConfig config, Run[] runs)
+        {
+            this.config = config;
+            this.runs = runs;
+
+            double[] generations = new double[runs.length];
+            double[] milliseconds = new double[runs.length];
+            for(Run run : runs) {
+                meanBestFitness += run.bestFitness / runs.length;
+                if(run.isSolved) {
+                    generations[solved] = run.generations;
+                    milliseconds[solved] = run.milliseconds;
+                    solved++;
+                }
+            }
+
+            if(solved > 0) {
+                Arrays.sort(generations, 0, solved);
+                Arrays.sort(milliseconds, 0, solved);
+                minGenerations = (int) generations[0];
+                maxGenerations = (int) generations[solved - 1];
+                meanGenerations = mean(generations, solved);
+                medianGenerations = median(generations, solved);
+                meanMilliseconds = mean(milliseconds, solved);
+                medianMilliseconds = median(milliseconds, solved);
+            }
+        }
+
+        /**
+         * @return Returns the share of runs which solved the task
+         */
+        public double getSolveRate()
+        {
+            return runs.length == 0 ? 0 : (double) solved / runs.length;
+        }
+
+        /**
+         * @param values Values of which the first count are used
+         * @param count Amount of values, at least one
+         * @return Returns the mean of the values
+         */
+        static double mean(double[] values, int count)
+        {
+            double sum = 0;
+            for(int i = 0; i < count; i++) {
+                sum += values[i];
+            }
+            return sum / count;
+        }
+
+        /**
+         * @param values Sorted values of which the first count are used
+         * @param count Amount of values, at least one
+         * @return Returns the median of the values
+         */
+        static double median(double[] values, int count)
+        {
+            return count % 2 == 1
+                    ? values[count / 2]
+                    : (values[count / 2 - 1] + values[count / 2]) / 2;
+        }
+
+        /**
+         * @return Returns the summary in a single line
+         */
+        @Override
+        public String toString()
+        {
+            return "solved " + solved + "/" + runs.length
+                    + ", generations mean " + meanGenerations
+                    + " median " + medianGenerations
+                    + " range " + (solved > 0 ? minGenerations + "-" + maxGenerations : "-")
+                    + ", time mean " + meanMilliseconds + " ms"
+                    + " median " + medianMilliseconds + " ms"
+                    + ", best fitness mean " + meanBestFitness
+                    + " | " + config;
+        }
+    }
+}
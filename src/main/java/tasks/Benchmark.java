@@ -0,0 +1,137 @@
+package tasks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+import NEATLib.NEAT;
+import NEATLib.NEATConfig;
+
+/**
+ * Base of the benchmark tasks. Evolves networks on a task with a fixed seed
+ * until it is solved or the generation limit is reached and reports the
+ * throughput: generations and evaluations per second, network activations
+ * per second, wall time to solve and peak heap usage.
+ */
+public abstract class Benchmark {
+
+	public NEAT neat;
+	public int networks = 150;
+	public int maxGenerations = 300;
+	public long seed = 1;
+
+	// Generation the task was solved in, -1 if it was not
+	public int solvedGeneration = -1;
+	public double wallSeconds;
+	public double generationsPerSecond;
+	public double evaluationsPerSecond;
+	public double activationsPerSecond;
+	public long peakHeapBytes;
+
+	// Network activations of the running evaluation
+	long activations;
+
+	public int runTest() {
+		NEATConfig config = configure();
+		config.SEED = seed;
+		resetPeakHeap();
+		long start = System.nanoTime();
+
+		neat = new NEAT(getInputCount(), getOutputCount(), networks, config);
+		long evaluations = 0;
+		activations = 0;
+		int generation = 0;
+
+		for(; generation < maxGenerations; generation++) {
+			boolean isSolved = false;
+
+			for(int i = 0; i < networks; i++) {
+				double fitness = evaluate(i);
+				neat.addFitness(fitness, i);
+				evaluations++;
+				isSolved |= isSolved(fitness);
+			}
+
+			if(isSolved) {
+				solvedGeneration = generation;
+				generation++;
+				break;
+			}
+
+			neat.advanceGeneration();
+			neat.resetFitness();
+		}
+
+		wallSeconds = (System.nanoTime() - start) / 1e9;
+		generationsPerSecond = generation / wallSeconds;
+		evaluationsPerSecond = evaluations / wallSeconds;
+		activationsPerSecond = activations / wallSeconds;
+		peakHeapBytes = getPeakHeap();
+
+		System.out.println(getName()
+				+ (solvedGeneration >= 0 ? ": solved in generation " + solvedGeneration : ": not solved")
+				+ String.format(" after %.2f s", wallSeconds));
+		System.out.println(String.format("	%.1f generations/s, %.0f evaluations/s, %.0f activations/s, peak heap %.1f MB",
+				generationsPerSecond, evaluationsPerSecond, activationsPerSecond, peakHeapBytes / 1048576.0));
+
+		return solvedGeneration >= 0 ? 0 : 1;
+	}
+
+	/**
+	 * Processes inputs with a network and counts the activation
+	 */
+	double[] activate(double[] inputs, int index) {
+		activations++;
+		return neat.processNetwork(inputs, index);
+	}
+
+	static void resetPeakHeap() {
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if(pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	/**
+	 * Sum of the peak usage of all heap pools since the last reset, an upper
+	 * bound of the actual peak heap usage
+	 */
+	static long getPeakHeap() {
+		long peak = 0;
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if(pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
+	abstract String getName();
+
+	abstract int getInputCount();
+
+	abstract int getOutputCount();
+
+	/**
+	 * Parameters of the run, the seed is set afterwards. Reproduction keeps
+	 * the default settings of the library.
+	 */
+	NEATConfig configure() {
+		NEATConfig config = new NEATConfig();
+		config.USES_BIAS = true;
+		config.PROP_NODE = 0.1;
+		config.PROP_CONNECTION = 0.2;
+		config.PROP_WEIGHT_UNIFORM = 0.5;
+		config.RANDOM_WEIGHT_RANGE = 3;
+		config.MAX_DELTA = 1.5;
+		return config;
+	}
+
+	/**
+	 * Rates the network with the given index on the task
+	 */
+	abstract double evaluate(int index);
+
+	abstract boolean isSolved(double fitness);
+}
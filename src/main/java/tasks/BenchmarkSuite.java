@@ -0,0 +1,33 @@
+package tasks;
+
+/**
+ * Runs all benchmark tasks one after another with the same seed
+ */
+public class BenchmarkSuite {
+
+	public long seed = 1;
+
+	public int runTest() {
+		Benchmark[] benchmarks = {
+			new PoleBalancingTest(true),
+			new PoleBalancingTest(false),
+			new DoublePoleBalancingTest(true),
+			new DoublePoleBalancingTest(false),
+			new FunctionApproximationTest()
+		};
+
+		int unsolved = 0;
+		for(Benchmark benchmark : benchmarks) {
+			benchmark.seed = seed;
+			unsolved += benchmark.runTest();
+		}
+
+		System.out.println(unsolved == 0 ? "All tasks solved" : unsolved + " tasks not solved");
+
+		return unsolved == 0 ? 0 : 1;
+	}
+
+	public static void main(String[] args) {
+		System.exit(new BenchmarkSuite().runTest());
+	}
+}
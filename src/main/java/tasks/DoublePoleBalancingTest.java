@@ -0,0 +1,147 @@
+package tasks;
+
+/**
+ * Balancing two poles of different length on the same cart with a
+ * continuous force, integrated with Runge-Kutta as in the original NEAT
+ * experiments. The network sees the cart position and both pole angles and,
+ * if enabled, their velocities. Without velocities the network has context
+ * outputs which it sees again as inputs in the next step, so it has to learn
+ * to remember what it needs to infer them, and the episode is shortened to
+ * 1000 steps. Solved once a network balances both poles for all steps.
+ */
+public class DoublePoleBalancingTest extends Benchmark {
+
+	static final double GRAVITY = -9.8;
+	static final double MASS_CART = 1.0;
+	static final double MASS_POLE_1 = 0.1;
+	static final double MASS_POLE_2 = 0.01;
+	// Half of the pole lengths
+	static final double LENGTH_1 = 0.5;
+	static final double LENGTH_2 = 0.05;
+	// Friction of the poles
+	static final double MUP = 0.000002;
+	static final double FORCE = 10.0;
+	static final double TAU = 0.01;
+	static final double TRACK_LIMIT = 2.4;
+	static final double ANGLE_LIMIT = 36 * Math.PI / 180;
+
+	// Outputs fed back as inputs in the next step if velocities are hidden
+	static final int CONTEXT = 2;
+
+	public boolean withVelocities;
+	public int steps;
+
+	public DoublePoleBalancingTest(boolean withVelocities) {
+		this.withVelocities = withVelocities;
+		if(withVelocities) {
+			steps = 10000;
+			maxGenerations = 300;
+		} else {
+			steps = 1000;
+			maxGenerations = 1000;
+		}
+	}
+
+	@Override
+	String getName() {
+		return "Double pole balancing " + (withVelocities ? "with" : "without") + " velocities";
+	}
+
+	@Override
+	int getInputCount() {
+		return withVelocities ? 6 : 3 + CONTEXT;
+	}
+
+	@Override
+	int getOutputCount() {
+		return withVelocities ? 1 : 1 + CONTEXT;
+	}
+
+	@Override
+	double evaluate(int index) {
+		// Cart position, pole angles and their velocities
+		double[] state = {0, 0, 4.5 * Math.PI / 180, 0, 0, 0};
+		double[] inputs = new double[getInputCount()];
+
+		int step = 0;
+		for(; step < steps; step++) {
+			inputs[0] = state[0] / 4.8;
+			inputs[1] = state[2] / 0.52;
+			inputs[2] = state[4] / 0.52;
+			if(withVelocities) {
+				inputs[3] = state[1] / 2;
+				inputs[4] = state[3] / 2;
+				inputs[5] = state[5] / 2;
+			}
+
+			double[] output = activate(inputs, index);
+			if(!withVelocities) {
+				System.arraycopy(output, 1, inputs, 3, CONTEXT);
+			}
+
+			double force = (output[0] - 0.5) * FORCE * 2;
+
+			// Two integration steps per action
+			rungeKutta(force, state);
+			rungeKutta(force, state);
+
+			if(Math.abs(state[0]) > TRACK_LIMIT
+					|| Math.abs(state[2]) > ANGLE_LIMIT
+					|| Math.abs(state[4]) > ANGLE_LIMIT) {
+				break;
+			}
+		}
+
+		return 100.0 * step / steps;
+	}
+
+	static void derivatives(double force, double[] state, double[] derivatives) {
+		double cos1 = Math.cos(state[2]);
+		double gsin1 = GRAVITY * Math.sin(state[2]);
+		double cos2 = Math.cos(state[4]);
+		double gsin2 = GRAVITY * Math.sin(state[4]);
+
+		double ml1 = LENGTH_1 * MASS_POLE_1;
+		double ml2 = LENGTH_2 * MASS_POLE_2;
+		double temp1 = MUP * state[3] / ml1;
+		double temp2 = MUP * state[5] / ml2;
+		double fi1 = ml1 * state[3] * state[3] * Math.sin(state[2])
+				+ 0.75 * MASS_POLE_1 * cos1 * (temp1 + gsin1);
+		double fi2 = ml2 * state[5] * state[5] * Math.sin(state[4])
+				+ 0.75 * MASS_POLE_2 * cos2 * (temp2 + gsin2);
+		double mi1 = MASS_POLE_1 * (1 - 0.75 * cos1 * cos1);
+		double mi2 = MASS_POLE_2 * (1 - 0.75 * cos2 * cos2);
+
+		derivatives[0] = state[1];
+		derivatives[1] = (force + fi1 + fi2) / (mi1 + mi2 + MASS_CART);
+		derivatives[2] = state[3];
+		derivatives[3] = -0.75 * (derivatives[1] * cos1 + gsin1 + temp1) / LENGTH_1;
+		derivatives[4] = state[5];
+		derivatives[5] = -0.75 * (derivatives[1] * cos2 + gsin2 + temp2) / LENGTH_2;
+	}
+
+	static void rungeKutta(double force, double[] state) {
+		double[] k1 = new double[6];
+		double[] k2 = new double[6];
+		double[] k3 = new double[6];
+		double[] k4 = new double[6];
+		double[] temp = new double[6];
+
+		derivatives(force, state, k1);
+		for(int i = 0; i < 6; i++) {temp[i] = state[i] + TAU / 2 * k1[i];}
+		derivatives(force, temp, k2);
+		for(int i = 0; i < 6; i++) {temp[i] = state[i] + TAU / 2 * k2[i];}
+		derivatives(force, temp, k3);
+		for(int i = 0; i < 6; i++) {temp[i] = state[i] + TAU * k3[i];}
+		derivatives(force, temp, k4);
+
+		for(int i = 0; i < 6; i++) {
+			state[i] += TAU / 6 * (k1[i] + 2 * k2[i] + 2 * k3[i] + k4[i]);
+		}
+	}
+
+	@Override
+	boolean isSolved(double fitness) {
+		return fitness >= 100;
+	}
+}
@@ -0,0 +1,50 @@
+package tasks;
+
+/**
+ * Approximating one period of a sine wave, scaled into the output range of
+ * the networks, on evenly spaced samples. The fitness falls with the root
+ * mean square error. Solved once the error drops below a twentieth.
+ */
+public class FunctionApproximationTest extends Benchmark {
+
+	public int samples = 32;
+
+	public FunctionApproximationTest() {
+		maxGenerations = 1000;
+	}
+
+	@Override
+	String getName() {
+		return "Function approximation";
+	}
+
+	@Override
+	int getInputCount() {
+		return 1;
+	}
+
+	@Override
+	int getOutputCount() {
+		return 1;
+	}
+
+	@Override
+	double evaluate(int index) {
+		double[] inputs = new double[1];
+		double squaredError = 0;
+
+		for(int s = 0; s < samples; s++) {
+			inputs[0] = (double) s / (samples - 1);
+			double target = 0.5 + 0.4 * Math.sin(2 * Math.PI * inputs[0]);
+			double error = activate(inputs, index)[0] - target;
+			squaredError += error * error;
+		}
+
+		return 100 * (1 - Math.sqrt(squaredError / samples));
+	}
+
+	@Override
+	boolean isSolved(double fitness) {
+		return fitness >= 95;
+	}
+}
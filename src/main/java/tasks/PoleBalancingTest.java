@@ -0,0 +1,138 @@
+package tasks;
+
+import java.util.Random;
+
+/**
+ * Balancing a single pole on a cart by pushing the cart left or right, from
+ * several fixed start states. The network sees the cart position and pole
+ * angle and, if enabled, their velocities. Without velocities the network
+ * has context outputs which it sees again as inputs in the next step, so it
+ * has to learn to remember what it needs to infer them. Solved once a
+ * network balances the pole for all steps from every start.
+ */
+public class PoleBalancingTest extends Benchmark {
+
+	static final double GRAVITY = 9.8;
+	static final double MASS_CART = 1.0;
+	static final double MASS_POLE = 0.1;
+	// Half of the pole length
+	static final double LENGTH = 0.5;
+	static final double FORCE = 10.0;
+	static final double TAU = 0.02;
+	static final double TRACK_LIMIT = 2.4;
+	static final double ANGLE_LIMIT = 12 * Math.PI / 180;
+
+	// Outputs fed back as inputs in the next step if velocities are hidden
+	static final int CONTEXT = 2;
+
+	public boolean withVelocities;
+	public int steps = 10000;
+	// Cart position, cart velocity, pole angle and angular velocity per start
+	public double[][] starts;
+
+	public PoleBalancingTest(boolean withVelocities) {
+		this.withVelocities = withVelocities;
+		if(withVelocities) {
+			starts = randomStarts(8, 0.8, 0);
+			maxGenerations = 300;
+		} else {
+			starts = randomStarts(4, 0.5, 0);
+			maxGenerations = 500;
+		}
+	}
+
+	/**
+	 * Start states drawn uniformly from a part of the failure limits, the
+	 * velocities from a part of 2 and 1
+	 * @param count Amount of start states
+	 * @param spread Part of the limits to draw from
+	 * @param seed Seed of the draw, independent of the seed of the run
+	 */
+	public static double[][] randomStarts(int count, double spread, long seed) {
+		Random random = new Random(seed);
+		double[][] starts = new double[count][];
+		for(int i = 0; i < count; i++) {
+			starts[i] = new double[] {
+				(random.nextDouble() * 2 - 1) * spread * TRACK_LIMIT,
+				(random.nextDouble() * 2 - 1) * spread * 2,
+				(random.nextDouble() * 2 - 1) * spread * ANGLE_LIMIT,
+				(random.nextDouble() * 2 - 1) * spread
+			};
+		}
+		return starts;
+	}
+
+	@Override
+	String getName() {
+		return "Pole balancing " + (withVelocities ? "with" : "without") + " velocities";
+	}
+
+	@Override
+	int getInputCount() {
+		return withVelocities ? 4 : 2 + CONTEXT;
+	}
+
+	@Override
+	int getOutputCount() {
+		return withVelocities ? 1 : 1 + CONTEXT;
+	}
+
+	@Override
+	double evaluate(int index) {
+		double balanced = 0;
+		for(double[] start : starts) {
+			balanced += balance(index, start);
+		}
+		return 100.0 * balanced / (starts.length * steps);
+	}
+
+	/**
+	 * Balances the pole from a start state
+	 * @return Returns the amount of steps the pole stayed up
+	 */
+	int balance(int index, double[] start) {
+		double x = start[0], dx = start[1], theta = start[2], dtheta = start[3];
+		double[] inputs = new double[getInputCount()];
+
+		int step = 0;
+		for(; step < steps; step++) {
+			inputs[0] = x / TRACK_LIMIT;
+			inputs[1] = theta / ANGLE_LIMIT;
+			if(withVelocities) {
+				inputs[2] = dx / 2;
+				inputs[3] = dtheta / 2;
+			}
+
+			double[] output = activate(inputs, index);
+			if(!withVelocities) {
+				System.arraycopy(output, 1, inputs, 2, CONTEXT);
+			}
+
+			double force = output[0] > 0.5 ? FORCE : -FORCE;
+
+			double cos = Math.cos(theta);
+			double sin = Math.sin(theta);
+			double totalMass = MASS_CART + MASS_POLE;
+			double temp = (force + MASS_POLE * LENGTH * dtheta * dtheta * sin) / totalMass;
+			double ddtheta = (GRAVITY * sin - cos * temp)
+					/ (LENGTH * (4.0 / 3.0 - MASS_POLE * cos * cos / totalMass));
+			double ddx = temp - MASS_POLE * LENGTH * ddtheta * cos / totalMass;
+
+			x += TAU * dx;
+			dx += TAU * ddx;
+			theta += TAU * dtheta;
+			dtheta += TAU * ddtheta;
+
+			if(Math.abs(x) > TRACK_LIMIT || Math.abs(theta) > ANGLE_LIMIT) {
+				break;
+			}
+		}
+
+		return step;
+	}
+
+	@Override
+	boolean isSolved(double fitness) {
+		return fitness >= 100;
+	}
+}
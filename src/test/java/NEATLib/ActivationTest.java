@@ -0,0 +1,104 @@
+package NEATLib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks the documented error bounds of the sigmoid approximations on a
+ * dense grid, and that the vectorisable loops and the documented ranges and
+ * slopes agree with the scalar functions.
+ */
+public class ActivationTest
+{
+    // Modifiers checked, the default and an unscaled sigmoid
+    static final double[] MODIFIERS = {4.9, 1.0};
+    // Grid over which the approximations are checked
+    static final double RANGE = 20;
+    static final double STEP = 1e-4;
+
+    /**
+     * @return Returns the largest deviation of an approximation from SIGMOID
+     * on the grid
+     */
+    static double maxDeviation(Activation approximation, double modifier)
+    {
+        double deviation = 0;
+
+        for(double x = -RANGE; x <= RANGE; x += STEP)
+        {
+            deviation = Math.max(deviation, Math.abs(
+                    approximation.apply(x, modifier) - Activation.SIGMOID.apply(x, modifier)));
+        }
+
+        return deviation;
+    }
+
+    @Test
+    public void tableStaysWithinItsBound()
+    {
+        for(double modifier : MODIFIERS)
+        {
+            double deviation = maxDeviation(Activation.SIGMOID_TABLE, modifier);
+            assertTrue("Deviation " + deviation, deviation <= 1e-6);
+        }
+    }
+
+    @Test
+    public void rationalStaysWithinItsBound()
+    {
+        for(double modifier : MODIFIERS)
+        {
+            double deviation = maxDeviation(Activation.SIGMOID_RATIONAL, modifier);
+            assertTrue("Deviation " + deviation, deviation <= 5e-5);
+        }
+    }
+
+    @Test
+    public void loopsMatchTheScalarFunction()
+    {
+        int length = 4001;
+        double[] sums = new double[length];
+        double[] values = new double[length];
+        for(int i = 0; i < length; i++) {sums[i] = -RANGE + i * (2 * RANGE / (length - 1));}
+
+        for(Activation activation : Activation.values())
+        {
+            for(double modifier : MODIFIERS)
+            {
+                activation.apply(sums, values, length, modifier);
+                for(int i = 0; i < length; i++)
+                {
+                    assertEquals(activation + " at " + sums[i],
+                            activation.apply(sums[i], modifier), values[i], 0.0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rangesAndSlopesHold()
+    {
+        for(Activation activation : Activation.values())
+        {
+            for(double modifier : MODIFIERS)
+            {
+                double lipschitz = activation.getLipschitz(modifier);
+                double previous = activation.apply(-RANGE, modifier);
+
+                for(double x = -RANGE + 1e-3; x <= RANGE; x += 1e-3)
+                {
+                    double value = activation.apply(x, modifier);
+                    assertTrue(activation + " below its minimum at " + x, value >= activation.getMinimum());
+                    assertTrue(activation + " beyond its magnitude at " + x,
+                            Math.abs(value) <= activation.getMagnitude());
+                    // Slack for the interpolation and the approximation error
+                    assertTrue(activation + " too steep at " + x,
+                            Math.abs(value - previous) <= lipschitz * 1e-3 + 1e-6);
+                    previous = value;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package NEATLib;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that the batched kernel gives the same outputs as processing the
+ * rows one by one, for batch sizes around the threshold and the tile size.
+ */
+public class BatchEvaluationTest
+{
+    static final double TOLERANCE = 1e-12;
+    static final int[] BATCHES = {1, 3, 4, 5, Phenotype.TILE - 1, Phenotype.TILE, Phenotype.TILE + 1, 1000};
+
+    /**
+     * @return Returns random input columns
+     */
+    static double[][] columns(Random random, int inputs, int batch)
+    {
+        double[][] columns = new double[inputs][batch];
+        for(int i = 0; i < inputs; i++)
+        {
+            for(int b = 0; b < batch; b++) {columns[i][b] = random.nextDouble() * 4 - 2;}
+        }
+        return columns;
+    }
+
+    /**
+     * Compares every row of a batch with the network processing it alone.
+     * Both start from a copy, so neither carries values over from before.
+     */
+    static void assertRowsMatch(NEATNetwork network, double[][] inputs, int batch, double tolerance)
+    {
+        NEATNetwork sequential = new NEATNetwork(network);
+        double[][] output = new NEATNetwork(network).processBatch(inputs, batch);
+
+        for(int b = 0; b < batch; b++)
+        {
+            double[] row = new double[inputs.length];
+            for(int i = 0; i < inputs.length; i++) {row[i] = inputs[i][b];}
+
+            double[] expected = sequential.process(row);
+            for(int o = 0; o < expected.length; o++)
+            {
+                assertEquals("Row " + b + " of " + batch, expected[o], output[o][b], tolerance);
+            }
+        }
+    }
+
+    @Test
+    public void batchMatchesProcess()
+    {
+        NEAT neat = EvaluationRuleTest.evolve(43, 60, 20);
+        Random random = new Random(43);
+
+        for(int i = 0; i < neat.getNetworkCount(); i++)
+        {
+            for(int batch : BATCHES)
+            {
+                assertRowsMatch(neat.getNetwork(i), columns(random, 2, batch), batch, TOLERANCE);
+            }
+        }
+    }
+
+    @Test
+    public void batchMatchesProcessForEveryActivation()
+    {
+        NEAT neat = EvaluationRuleTest.evolve(47, 30, 15);
+        Random random = new Random(47);
+
+        for(Activation activation : Activation.values())
+        {
+            for(int i = 0; i < neat.getNetworkCount(); i++)
+            {
+                NEATNetwork network = new NEATNetwork(neat.getNetwork(i));
+                network.setActivation(activation);
+                assertRowsMatch(network, columns(random, 2, 300), 300, TOLERANCE);
+            }
+        }
+    }
+
+    @Test
+    public void singlePrecisionBatchMatchesProcess()
+    {
+        NEAT neat = EvaluationRuleTest.evolve(53, 60, 20);
+        neat.setPrecision(Precision.FLOAT);
+        Random random = new Random(53);
+
+        for(int i = 0; i < neat.getNetworkCount(); i++)
+        {
+            assertRowsMatch(neat.getNetwork(i), columns(random, 2, 500), 500, 1e-6);
+        }
+    }
+
+    @Test
+    public void biasColumnIsAdded()
+    {
+        NEATConfig config = new NEATConfig();
+        config.SEED = 59;
+        config.USES_BIAS = true;
+        NEAT neat = new NEAT(2, 1, 20, config);
+        Random random = new Random(59);
+
+        for(int i = 0; i < neat.getNetworkCount(); i++)
+        {
+            for(int m = 0; m < 10; m++) {neat.getNetwork(i).mutate();}
+
+            NEATNetwork sequential = new NEATNetwork(neat.getNetwork(i));
+            double[][] inputs = columns(random, 2, 100);
+            double[][] output = neat.processNetworkBatch(inputs, 100, i);
+
+            for(int b = 0; b < 100; b++)
+            {
+                double[] row = {inputs[0][b], inputs[1][b]};
+                assertEquals(neat.processNetwork(row, sequential)[0], output[0][b], TOLERANCE);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package NEATLib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Checks that blocking evaluations overlap up to the limit, never beyond it,
+ * and that their fitness and failures reach the caller.
+ */
+public class BlockingEvaluatorTest
+{
+    /**
+     * Blocks the calling thread like a fitness function waiting on a simulator
+     */
+    static void block(long millis)
+    {
+        try {
+            Thread.sleep(millis);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void concurrencyStaysWithinTheLimit()
+    {
+        NEAT neat = new NEAT(2, 1, 40);
+        BlockingEvaluator evaluator = new BlockingEvaluator(4);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        evaluator.evaluate(neat, 2, (network, episode) -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            block(5);
+            running.decrementAndGet();
+            return 1;
+        });
+        evaluator.shutdown();
+
+        assertTrue("Peak " + peak.get(), peak.get() <= 4);
+        assertTrue("Evaluations never overlapped", peak.get() > 1);
+
+        for(int i = 0; i < neat.getNetworkCount(); i++)
+        {
+            assertEquals(2, neat.getNetwork(i).getFitness(), 0.0);
+        }
+    }
+
+    @Test
+    public void blockedEvaluationsOverlap()
+    {
+        NEAT neat = new NEAT(2, 1, 50);
+        BlockingEvaluator evaluator = new BlockingEvaluator(50);
+
+        long start = System.nanoTime();
+        evaluator.evaluate(neat, 1, (network, episode) -> {
+            block(50);
+            return 1;
+        });
+        long millis = (System.nanoTime() - start) / 1000000;
+        evaluator.shutdown();
+
+        // Back to back the evaluations would take 2.5 s
+        assertTrue("Took " + millis + " ms", millis < 1000);
+    }
+
+    @Test
+    public void failuresReachTheCaller()
+    {
+        NEAT neat = new NEAT(2, 1, 10);
+        BlockingEvaluator evaluator = new BlockingEvaluator(2);
+        RuntimeException failure = new RuntimeException("Simulator gone");
+
+        try {
+            evaluator.evaluate(neat, 1, (network, episode) -> {
+                if(network == neat.getNetwork(5)) {throw failure;}
+                return 1;
+            });
+            fail("The failure has been swallowed");
+        } catch(IllegalStateException e) {
+            assertSame(failure, e.getCause());
+        } finally {
+            evaluator.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void limitMustAllowAnEvaluation()
+    {
+        new BlockingEvaluator(0);
+    }
+}
@@ -0,0 +1,135 @@
+package NEATLib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that the champion index assigns every specimen to the same species
+ * as the linear scan over all champions, while skipping comparisons.
+ */
+public class ChampionIndexTest
+{
+    /**
+     * Evolves a population with random fitness and a small maximum delta,
+     * which gives many species
+     * @param seed Seed of the run
+     * @return Returns the NEAT instance
+     */
+    static NEAT evolve(long seed)
+    {
+        NEATConfig config = new NEATConfig();
+        config.SEED = seed;
+        config.MAX_DELTA = 0.5;
+        NEAT neat = new NEAT(3, 2, 200, config);
+        Random random = new Random(seed);
+
+        for(int g = 0; g < 25; g++)
+        {
+            for(int i = 0; i < neat.getNetworkCount(); i++)
+            {
+                neat.addFitness(random.nextDouble(), i);
+            }
+
+            neat.advanceGeneration();
+        }
+
+        return neat;
+    }
+
+    /**
+     * Finds the species the way speciation did before the index
+     * @return Returns the index of the first compatible champion or -1
+     */
+    static int linearScan(NEAT neat, List<NEATNetwork> champions, NEATNetwork specimen)
+    {
+        for(int i = 0; i < champions.size(); i++)
+        {
+            if(champions.get(i).compareCompatibility(specimen,
+                    neat.WEIGHT_C1, neat.WEIGHT_C2, neat.WEIGHT_C3) < neat.MAX_DELTA)
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    @Test
+    public void assignmentEqualsLinearScan()
+    {
+        NEAT neat = evolve(5);
+        ChampionIndex index = new ChampionIndex(neat);
+        List<NEATNetwork> champions = new ArrayList<>();
+        int newSpecies = 0;
+
+        // Speciate the population from scratch
+        for(int i = 0; i < neat.getNetworkCount(); i++)
+        {
+            NEATNetwork specimen = neat.getNetwork(i);
+            int expected = linearScan(neat, champions, specimen);
+            assertEquals("Specimen " + i, expected, index.findSpecies(champions, specimen));
+
+            if(expected < 0) {
+                champions.add(specimen);
+                index.add(specimen);
+                newSpecies++;
+            }
+        }
+
+        assertTrue("Too few species to prune: " + newSpecies, newSpecies > 10);
+        assertTrue("Nothing has been pruned", index.getPrunedCount() > 0);
+        assertTrue("Pruning rate " + index.getPruningRate(), index.getPruningRate() > 0);
+    }
+
+    @Test
+    public void unreachableBoundIsSkipped()
+    {
+        NEAT neat = evolve(5);
+        // With the default maximum delta the bound can never prune
+        neat.MAX_DELTA = 3;
+        ChampionIndex index = new ChampionIndex(neat);
+        List<NEATNetwork> champions = new ArrayList<>();
+
+        for(int i = 0; i < neat.getNetworkCount(); i++)
+        {
+            NEATNetwork specimen = neat.getNetwork(i);
+            int expected = linearScan(neat, champions, specimen);
+            assertEquals("Specimen " + i, expected, index.findSpecies(champions, specimen));
+
+            if(expected < 0) {
+                champions.add(specimen);
+                index.add(specimen);
+            }
+        }
+
+        assertTrue(index.maxBound() < neat.MAX_DELTA);
+        assertEquals(0, index.getPrunedCount());
+    }
+
+    @Test
+    public void boundNeverExceedsDelta()
+    {
+        NEAT neat = evolve(9);
+        ChampionIndex index = new ChampionIndex(neat);
+
+        for(int i = 0; i < neat.getNetworkCount(); i++)
+        {
+            for(int j = 0; j < neat.getNetworkCount(); j += 7)
+            {
+                NEATNetwork a = neat.getNetwork(i);
+                NEATNetwork b = neat.getNetwork(j);
+                double bound = index.lowerBound(ChampionIndex.summarize(a), ChampionIndex.summarize(b));
+                double delta = a.compareCompatibility(b, neat.WEIGHT_C1, neat.WEIGHT_C2, neat.WEIGHT_C3);
+
+                assertTrue(bound + " > " + delta + " for " + i + ", " + j, bound <= delta);
+                assertTrue(bound <= index.maxBound());
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package NEATLib;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that the compact representation holds the same genome as the
+ * network it is converted from and keeps its arrays consistent while it is
+ * mutated and mated on its own.
+ */
+public class CompactGenomeTest
+{
+    static final double TOLERANCE = 1e-12;
+
+    /**
+     * @param genome The genome to be checked
+     * @return Returns whether the innovations and node IDs are strictly
+     * ascending and every connection leads between existing nodes
+     */
+    static boolean isConsistent(CompactGenome genome)
+    {
+        for(int i = 1; i < genome.innovations.length; i++)
+        {
+            if(genome.innovations[i - 1] >= genome.innovations[i]) {return false;}
+        }
+
+        for(int i = 1; i < genome.nodeIDs.length; i++)
+        {
+            if(genome.nodeIDs[i - 1] >= genome.nodeIDs[i]) {return false;}
+        }
+
+        for(int i = 0; i < genome.innovations.length; i++)
+        {
+            if(genome.getNodeSlot(genome.inNodes[i]) < 0 || genome.getNodeSlot(genome.outNodes[i]) < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Test
+    public void conversionKeepsTheGenome()
+    {
+        NEAT neat = EvaluationRuleTest.evolve(13, 150, 20);
+
+        for(int i = 0; i < neat.getNetworkCount(); i++)
+        {
+            NEATNetwork network = neat.getNetwork(i);
+            CompactGenome genome = new CompactGenome(network);
+            NEATNetwork restored = genome.toNetwork();
+
+            assertEquals(network.connections.size(), genome.getGeneCount());
+            assertEquals(network.nodes.size(), genome.getNodeCount());
+            assertEquals(0, network.compareCompatibility(restored, 1, 1, 1), 0.0);
+            assertTrue("Genome " + i, isConsistent(genome));
+
+        }
+    }
+
+    @Test
+    public void deltaEqualsNetworkDelta()
+    {
+        NEAT neat = EvaluationRuleTest.evolve(23, 150, 20);
+        neat.SMALL_GENOME_CUTOFF = 20;
+        Random random = new Random(23);
+
+        for(int i = 0; i < neat.getNetworkCount(); i++)
+        {
+            NEATNetwork a = neat.getNetwork(i);
+            NEATNetwork b = neat.getNetwork(random.nextInt(neat.getNetworkCount()));
+            CompactGenome genomeA = new CompactGenome(a);
+            CompactGenome genomeB = new CompactGenome(b);
+
+            assertEquals("Delta of genome " + i,
+                    a.compareCompatibility(b, 1, 0.7, 0.4),
+                    genomeA.compareCompatibility(genomeB, 1, 0.7, 0.4), 0.0);
+            assertEquals("Reverse delta of genome " + i,
+                    b.compareCompatibility(a, 1, 0.7, 0.4),
+                    genomeB.compareCompatibility(genomeA, 1, 0.7, 0.4), 0.0);
+        }
+    }
+
+    @Test
+    public void offspringEqualNetworkOffspring()
+    {
+        NEAT neat = EvaluationRuleTest.evolve(29, 100, 15);
+        Random random = new Random(29);
+
+        for(int i = 0; i < neat.getNetworkCount(); i++)
+        {
+            NEATNetwork a = neat.getNetwork(i);
+            NEATNetwork b = neat.getNetwork(random.nextInt(neat.getNetworkCount()));
+            a.fitness = 1 + random.nextDouble();
+            b.fitness = 1 + random.nextDouble();
+            CompactGenome genomeA = new CompactGenome(a);
+            CompactGenome genomeB = new CompactGenome(b);
+
+            // Both backends have to draw the same random numbers
+            neat.random.setSeed(i);
+            CompactGenome expected = new CompactGenome(a.mate(a, b));
+            long expectedDraw = neat.random.nextLong();
+            neat.random.setSeed(i);
+            CompactGenome offspring = genomeA.mate(genomeA, genomeB);
+            assertEquals("Random draws of offspring " + i, expectedDraw, neat.random.nextLong());
+
+            assertArrayEquals("Offspring " + i, expected.innovations, offspring.innovations);
+            for(int g = 0; g < expected.getGeneCount(); g++)
+            {
+                assertEquals("Weight of offspring " + i, expected.getWeight(g), offspring.getWeight(g), 0.0);
+            }
+            assertEquals("Enabled genes of offspring " + i, expected.enabled, offspring.enabled);
+        }
+    }
+
+    @Test
+    public void mutatedGenomesStayConsistent()
+    {
+        NEATConfig config = new NEATConfig();
+        config.SEED = 17;
+        NEAT neat = new NEAT(3, 2, 1, config);
+        Random random = new Random(17);
+
+        for(int g = 0; g < 50; g++)
+        {
+            CompactGenome genome = new CompactGenome(3, 2, neat);
+
+            for(int m = 0; m < 40; m++)
+            {
+                genome.mutate();
+                assertTrue("Genome " + g + " after mutation " + m, isConsistent(genome));
+            }
+
+            NEATNetwork network = genome.toNetwork();
+            double[] input = {random.nextDouble(), random.nextDouble(), random.nextDouble()};
+            assertArrayEquals("Genome " + g, network.process(input), genome.process(input), TOLERANCE);
+        }
+    }
+
+    @Test
+    public void offspringInheritTheFitterParentsGenes()
+    {
+        NEAT neat = EvaluationRuleTest.evolve(19, 100, 15);
+        Random random = new Random(19);
+
+        for(int i = 0; i < neat.getNetworkCount(); i++)
+        {
+            CompactGenome a = new CompactGenome(neat.getNetwork(i));
+            CompactGenome b = new CompactGenome(neat.getNetwork(random.nextInt(neat.getNetworkCount())));
+            a.fitness = 1 + random.nextDouble();
+            b.fitness = 1 + random.nextDouble();
+            CompactGenome better = a.fitness > b.fitness ? a : b;
+
+            CompactGenome offspring = a.mate(a, b);
+            assertArrayEquals(better.innovations, offspring.innovations);
+            assertArrayEquals(better.nodeIDs, offspring.nodeIDs);
+            assertTrue("Offspring " + i, isConsistent(offspring));
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package NEATLib;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import NEATLib.NEATNetwork.Connection;
+import NEATLib.NEATNetwork.Node;
+
+/**
+ * Checks that compaction strips only dead structure, keeping the outputs of
+ * every network, and that it runs after every full interval of generations.
+ */
+public class CompactionTest
+{
+    static final double TOLERANCE = 1e-12;
+
+    /**
+     * @param network The network to be checked
+     * @param node A hidden node of the network
+     * @return Returns whether an output can be reached from the node
+     */
+    static boolean reachesOutput(NEATNetwork network, Node node)
+    {
+        List<Node> stack = new ArrayList<>();
+        List<Node> seen = new ArrayList<>();
+        stack.add(node);
+
+        while(!stack.isEmpty())
+        {
+            Node current = stack.remove(stack.size() - 1);
+            if(current.t == NEATNetwork.Type.OUTPUT) {return true;}
+            if(seen.contains(current)) {continue;}
+            seen.add(current);
+
+            for(Connection c : network.connections)
+            {
+                if(c.inRef == current) {stack.add(c.outRef);}
+            }
+        }
+
+        return false;
+    }
+
+    @Test
+    public void compactionKeepsTheOutputs()
+    {
+        NEAT neat = EvaluationRuleTest.evolve(101, 150, 30);
+        Random random = new Random(101);
+        int removed = 0;
+
+        for(int i = 0; i < neat.getNetworkCount(); i++)
+        {
+            NEATNetwork network = new NEATNetwork(neat.getNetwork(i));
+            double[][] inputs = new double[10][];
+            double[][] expected = new double[10][];
+            for(int s = 0; s < inputs.length; s++)
+            {
+                inputs[s] = new double[] {random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1};
+                expected[s] = network.process(inputs[s]);
+            }
+
+            int genes = network.connections.size();
+            int count = network.compact(neat.generation, 0);
+            assertEquals(genes - count, network.connections.size());
+            removed += count;
+
+            for(Connection c : network.connections) {assertTrue("Network " + i, c.enabled);}
+            for(Node n : network.nodes)
+            {
+                if(n.t == NEATNetwork.Type.HIDDEN) {assertTrue("Network " + i, reachesOutput(network, n));}
+            }
+
+            for(int s = 0; s < inputs.length; s++)
+            {
+                assertArrayEquals("Network " + i, expected[s], network.process(inputs[s]), TOLERANCE);
+            }
+        }
+
+        assertTrue("Nothing has been compacted", removed > 0);
+    }
+
+    @Test
+    public void youngDisabledConnectionsAreKept()
+    {
+        NEAT neat = EvaluationRuleTest.evolve(103, 100, 20);
+
+        for(int i = 0; i < neat.getNetworkCount(); i++)
+        {
+            NEATNetwork network = new NEATNetwork(neat.getNetwork(i));
+            int disabled = 0;
+            for(Connection c : network.connections)
+            {
+                c.disabledSince = c.enabled ? -1 : 10;
+                if(!c.enabled) {disabled++;}
+            }
+
+            // Disabled five generations ago, younger than the age of six
+            network.compact(15, 6);
+            int kept = 0;
+            for(Connection c : network.connections) {if(!c.enabled) {kept++;}}
+            assertEquals("Network " + i, disabled, kept);
+
+            // One generation later they are old enough
+            network.compact(16, 6);
+            for(Connection c : network.connections) {assertTrue("Network " + i, c.enabled);}
+        }
+    }
+
+    @Test
+    public void compactionRunsAfterEveryFullInterval()
+    {
+        NEATConfig config = new NEATConfig();
+        config.SEED = 107;
+        config.DOES_COMPACT_GENOMES = true;
+        config.COMPACTION_INTERVAL = 5;
+        config.COMPACTION_AGE = 0;
+        NEAT neat = new NEAT(2, 1, 150, config);
+        Random random = new Random(107);
+        long total = 0;
+
+        for(int g = 0; g < 30; g++)
+        {
+            for(int i = 0; i < neat.getNetworkCount(); i++) {neat.addFitness(random.nextDouble(), i);}
+            neat.advanceGeneration();
+
+            long genes = neat.getCompactedGeneCount();
+            long nodes = neat.getCompactedNodeCount();
+            assertEquals(genes * NEATNetwork.CONNECTION_BYTES + nodes * NEATNetwork.NODE_BYTES,
+                    neat.getCompactedBytes());
+
+            if((g + 1) % 5 != 0) {
+                assertEquals("Generation " + g, 0, genes + nodes);
+            } else {
+                total += genes;
+                // Right after a compaction no disabled connection is left
+                for(int i = 0; i < neat.getNetworkCount(); i++)
+                {
+                    for(Connection c : neat.getNetwork(i).connections)
+                    {
+                        assertTrue("Generation " + g + ", network " + i, c.enabled);
+                    }
+                }
+            }
+        }
+
+        assertTrue("Nothing has been compacted", total > 0);
+    }
+}
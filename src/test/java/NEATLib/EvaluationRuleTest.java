@@ -0,0 +1,291 @@
+package NEATLib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import NEATLib.NEATNetwork.Connection;
+
+/**
+ * Checks that a network, its compact genome and its off-heap record follow
+ * the same evaluation rule, in particular on genomes whose connections do
+ * not follow the layer numbers of their nodes, and that recurrent networks
+ * carry values over between calls the way they always did.
+ */
+public class EvaluationRuleTest
+{
+    static final double TOLERANCE = 1e-12;
+
+    /**
+     * Evolves a population with random fitness for a given amount of
+     * generations
+     * @param seed Seed of the run
+     * @param networks Amount of networks
+     * @param generations Amount of generations
+     * @return Returns the NEAT instance
+     */
+    static NEAT evolve(long seed, int networks, int generations)
+    {
+        return evolve(seed, networks, generations, false);
+    }
+
+    /**
+     * Evolves a population with random fitness for a given amount of
+     * generations
+     * @param seed Seed of the run
+     * @param networks Amount of networks
+     * @param generations Amount of generations
+     * @param isRecurrent Whether or not recurrent connections are allowed
+     * @return Returns the NEAT instance
+     */
+    static NEAT evolve(long seed, int networks, int generations, boolean isRecurrent)
+    {
+        NEATConfig config = new NEATConfig();
+        config.SEED = seed;
+        config.DOES_ALLOW_RECURRENT = isRecurrent;
+        NEAT neat = new NEAT(2, 1, networks, config);
+        Random random = new Random(seed);
+
+        for(int g = 0; g < generations; g++)
+        {
+            for(int i = 0; i < networks; i++)
+            {
+                double[] output = neat.processNetwork(new double[] {1, 0}, i);
+                neat.addFitness(output[0] + random.nextDouble(), i);
+            }
+
+            neat.advanceGeneration();
+        }
+
+        return neat;
+    }
+
+    /**
+     * @param network The network to be checked
+     * @return Returns whether an enabled connection leads to a node with the
+     * same or a lower layer number
+     */
+    static boolean isLayered(NEATNetwork network)
+    {
+        for(Connection c : network.connections)
+        {
+            if(c.enabled && c.inRef.layerNumber >= c.outRef.layerNumber)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Evaluation of a network as it was implemented originally: every node
+     * keeps the last value delivered by each of its incoming connections,
+     * the connections are taken in order of the layer number of their input
+     * node and a node is activated when it is first used. Only enabled
+     * connections are taken and a disabled one loses its value.
+     */
+    static class Reference
+    {
+        // Last value delivered by every input node, per output node
+        Map<NEATNetwork.Node, TreeMap<Integer, Double>> inputValues = new HashMap<>();
+        // Values of the nodes activated in the current call
+        Map<NEATNetwork.Node, Double> values = new HashMap<>();
+
+        /**
+         * @param network The network to be processed
+         * @param input Array of input values
+         * @return Returns an array corresponding to the calculated outputs
+         */
+        double[] process(NEATNetwork network, double[] input)
+        {
+            List<Connection> connections = new ArrayList<>();
+            for(Connection c : network.connections)
+            {
+                if(c.enabled)
+                {
+                    connections.add(c);
+                }
+                else if(inputValues.containsKey(c.outRef))
+                {
+                    inputValues.get(c.outRef).remove(c.inRef.nodeID);
+                }
+            }
+            connections.sort(Comparator.comparingInt((Connection c) -> c.innovationNumber));
+            connections.sort(Comparator.comparingDouble((Connection c) -> c.inRef.layerNumber));
+
+            values.clear();
+            for(NEATNetwork.Node n : network.nodes)
+            {
+                if(n.t == NEATNetwork.Type.INPUT)
+                {
+                    values.put(n, input[n.nodeID]);
+                }
+            }
+
+            for(Connection c : connections)
+            {
+                double value = activate(network, c.inRef);
+                inputValues.computeIfAbsent(c.outRef, n -> new TreeMap<>())
+                        .put(c.inRef.nodeID, value * c.weight);
+            }
+
+            double[] output = new double[network.outputs];
+            for(NEATNetwork.Node n : network.nodes)
+            {
+                if(n.t == NEATNetwork.Type.OUTPUT)
+                {
+                    output[n.nodeID - network.inputs] = activate(network, n);
+                }
+            }
+
+            return output;
+        }
+
+        /**
+         * @param network The network the node belongs to
+         * @param n The node to be activated unless that already happened
+         * @return Returns the value of the node
+         */
+        double activate(NEATNetwork network, NEATNetwork.Node n)
+        {
+            if(!values.containsKey(n))
+            {
+                double sum = 0;
+                for(double value : inputValues.getOrDefault(n, new TreeMap<>()).values())
+                {
+                    sum += value;
+                }
+                values.put(n, network.activation.apply(sum, network.reference.SIGMOID_MODIFIER));
+            }
+
+            return values.get(n);
+        }
+    }
+
+    @Test
+    public void representationsAgreeOnEvolvedNetworks()
+    {
+        NEAT neat = evolve(7, 300, 30);
+        OffHeapPopulation population = new OffHeapPopulation(2, 1, neat);
+        Random random = new Random(7);
+        int nonLayered = 0;
+
+        for(int i = 0; i < neat.getNetworkCount(); i++)
+        {
+            NEATNetwork network = neat.getNetwork(i);
+            CompactGenome genome = new CompactGenome(network);
+            GenomeView view = population.view(population.add(genome));
+            // Compiled from scratch instead of patched through the mutations
+            NEATNetwork recompiled = genome.toNetwork();
+            NEATNetwork copy = new NEATNetwork(network);
+
+            if(!isLayered(network)) {nonLayered++;}
+
+            for(int s = 0; s < 20; s++)
+            {
+                double[] input = {random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1};
+                // Genomes carry nothing over, like the first call of a copy
+                double expected = new NEATNetwork(network).process(input)[0];
+
+                assertEquals("Compact genome of network " + i,
+                        expected, genome.process(input)[0], TOLERANCE);
+                assertEquals("Genome view of network " + i,
+                        expected, view.process(input)[0], TOLERANCE);
+                assertEquals("Recompiled network " + i,
+                        copy.process(input)[0], recompiled.process(input)[0], TOLERANCE);
+            }
+        }
+
+        assertTrue("No non-layered network has been checked", nonLayered > 0);
+    }
+
+    @Test
+    public void offHeapOffspringFollowTheRule()
+    {
+        NEAT neat = evolve(11, 150, 20);
+        OffHeapPopulation parents = new OffHeapPopulation(2, 1, neat);
+        OffHeapPopulation offspring = new OffHeapPopulation(2, 1, neat);
+        Random random = new Random(11);
+
+        for(int i = 0; i < neat.getNetworkCount(); i++)
+        {
+            parents.add(new CompactGenome(neat.getNetwork(i)));
+        }
+
+        for(int i = 0; i < parents.size(); i++)
+        {
+            GenomeView child = offspring.view(offspring.mate(
+                    parents.view(i), parents.view(random.nextInt(parents.size()))));
+            CompactGenome genome = child.toGenome();
+
+            double[] input = {random.nextDouble(), random.nextDouble()};
+            assertEquals("Offspring " + i,
+                    genome.process(input)[0], child.process(input)[0], TOLERANCE);
+        }
+    }
+
+    @Test
+    public void recurrentNetworksMatchTheOriginalEvaluation()
+    {
+        NEAT neat = evolve(5, 200, 25, true);
+        Random random = new Random(5);
+        int delayed = 0;
+
+        for(int i = 0; i < neat.getNetworkCount(); i++)
+        {
+            // The copy starts without values carried over, like the reference
+            NEATNetwork network = new NEATNetwork(neat.getNetwork(i));
+            Reference reference = new Reference();
+
+            for(int s = 0; s < 20; s++)
+            {
+                // Mutations between calls patch the phenotype in place
+                if(s % 5 == 4)
+                {
+                    network.mutate();
+                }
+
+                double[] input = {random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1};
+                assertEquals("Network " + i + " in call " + s,
+                        reference.process(network, input)[0], network.process(input)[0], TOLERANCE);
+            }
+
+            if(network.phenotype.delayedCount > 0) {delayed++;}
+        }
+
+        assertTrue("No network with delayed connections has been checked", delayed > 0);
+    }
+
+    @Test
+    public void recurrentConnectionCarriesTheLastValue()
+    {
+        NEAT neat = new NEAT(1, 1, 1);
+        NEATNetwork network = neat.getNetwork(0);
+        NEATNetwork.Node output = network.nodes.get(1);
+        network.connections.get(0).weight = 1;
+
+        // Connection from the output back into itself
+        Connection loop = network.new Connection(output, output, true);
+        loop.weight = 2;
+        network.connections.add(loop);
+
+        double modifier = neat.SIGMOID_MODIFIER;
+        double first = Activation.SIGMOID.apply(1, modifier);
+        double second = Activation.SIGMOID.apply(1 + 2 * first, modifier);
+        assertEquals(first, network.process(new double[] {1})[0], TOLERANCE);
+        assertEquals(second, network.process(new double[] {1})[0], TOLERANCE);
+
+        // A copy starts over
+        assertEquals(first, new NEATNetwork(network).process(new double[] {1})[0], TOLERANCE);
+    }
+}
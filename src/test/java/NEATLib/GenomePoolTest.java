@@ -0,0 +1,100 @@
+package NEATLib;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Checks that networks reused through the pool are exact copies which share
+ * no genes with their source, and that steady-state evolution is served from
+ * the pool.
+ */
+public class GenomePoolTest
+{
+    static final double TOLERANCE = 1e-12;
+
+    @Test
+    public void reusedNetworksCopyTheSource()
+    {
+        NEAT neat = EvaluationRuleTest.evolve(23, 100, 15);
+        GenomePool pool = new GenomePool(neat.getNetworkCount());
+        Random random = new Random(23);
+
+        for(int i = 0; i < neat.getNetworkCount(); i++)
+        {
+            // A stale network of another shape to be overwritten
+            pool.release(new NEATNetwork(neat.getNetwork(random.nextInt(neat.getNetworkCount()))));
+        }
+
+        for(int i = 0; i < neat.getNetworkCount(); i++)
+        {
+            NEATNetwork source = neat.getNetwork(i);
+            double[] input = {random.nextDouble(), random.nextDouble()};
+            double[] expected = source.process(input);
+            int genes = source.connections.size();
+
+            NEATNetwork copy = pool.copyOf(source);
+            assertNotSame(source, copy);
+            assertEquals(genes, copy.connections.size());
+            assertEquals(source.nodes.size(), copy.nodes.size());
+            assertEquals(0, source.compareCompatibility(copy, 1, 1, 1), 0.0);
+            assertArrayEquals("Network " + i, expected, copy.process(input), TOLERANCE);
+
+            Set<Object> sourceGenes = Collections.newSetFromMap(new IdentityHashMap<>());
+            sourceGenes.addAll(source.nodes);
+            sourceGenes.addAll(source.connections);
+            for(Object gene : copy.nodes) {assertTrue(!sourceGenes.contains(gene));}
+            for(Object gene : copy.connections) {assertTrue(!sourceGenes.contains(gene));}
+
+            // Mutating the copy leaves the source untouched
+            for(int m = 0; m < 10; m++) {copy.mutate();}
+            assertEquals(genes, source.connections.size());
+            assertArrayEquals("Source of network " + i, expected, source.process(input), 0.0);
+        }
+
+        assertEquals(neat.getNetworkCount(), pool.getHitCount());
+        assertEquals(0, pool.getMissCount());
+    }
+
+    @Test
+    public void steadyStateIsServedFromThePool()
+    {
+        NEAT neat = EvaluationRuleTest.evolve(29, 200, 20);
+        GenomePool pool = neat.getGenomePool();
+
+        assertTrue("Hit rate " + pool.getHitRate(), pool.getHitRate() > 0.9);
+        assertTrue(pool.getFreeCount() <= pool.getCapacity());
+        assertTrue(pool.getPeakFreeCount() <= pool.getCapacity());
+        assertTrue(pool.getOccupancy() >= 0 && pool.getOccupancy() <= 1);
+    }
+
+    @Test
+    public void fullPoolDropsReleasedNetworks()
+    {
+        NEAT neat = new NEAT(2, 1, 1);
+        GenomePool pool = new GenomePool(2);
+
+        for(int i = 0; i < 5; i++)
+        {
+            pool.release(new NEATNetwork(neat.getNetwork(0)));
+        }
+
+        assertEquals(2, pool.getFreeCount());
+        assertEquals(3, pool.getDropCount());
+        assertEquals(1.0, pool.getOccupancy(), 0.0);
+
+        pool.copyOf(neat.getNetwork(0));
+        pool.copyOf(neat.getNetwork(0));
+        pool.copyOf(neat.getNetwork(0));
+        assertEquals(2, pool.getHitCount());
+        assertEquals(1, pool.getMissCount());
+    }
+}
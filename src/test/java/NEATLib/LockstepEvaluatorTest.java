@@ -0,0 +1,96 @@
+package NEATLib;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that evaluating the packed generation in lockstep gives every
+ * network the outputs it gives when processed on its own.
+ */
+public class LockstepEvaluatorTest
+{
+    static final double TOLERANCE = 1e-12;
+
+    /**
+     * Evolves a population with random fitness
+     * @param config The configuration, seeded by the caller
+     * @return Returns the NEAT instance
+     */
+    static NEAT evolve(NEATConfig config, int inputs, int outputs)
+    {
+        NEAT neat = new NEAT(inputs, outputs, 150, config);
+        Random random = new Random(config.SEED);
+
+        for(int g = 0; g < 20; g++)
+        {
+            for(int i = 0; i < neat.getNetworkCount(); i++) {neat.addFitness(random.nextDouble(), i);}
+            neat.advanceGeneration();
+        }
+
+        return neat;
+    }
+
+    /**
+     * Streams random rows through the evaluator and compares every network
+     */
+    static void assertLockstepMatches(NEAT neat, int inputs, double tolerance)
+    {
+        LockstepEvaluator evaluator = new LockstepEvaluator(neat);
+        Random random = new Random(61);
+        assertEquals(neat.getNetworkCount(), evaluator.getNetworkCount());
+
+        for(int r = 0; r < 30; r++)
+        {
+            double[] row = new double[inputs];
+            for(int i = 0; i < inputs; i++) {row[i] = random.nextDouble() * 2 - 1;}
+
+            double[][] output = evaluator.process(row);
+            for(int i = 0; i < neat.getNetworkCount(); i++)
+            {
+                double[] expected = neat.processNetwork(row, i);
+                for(int o = 0; o < expected.length; o++)
+                {
+                    assertEquals("Network " + i + ", row " + r, expected[o], output[i][o], tolerance);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void lockstepMatchesProcess()
+    {
+        NEATConfig config = new NEATConfig();
+        config.SEED = 67;
+        assertLockstepMatches(evolve(config, 3, 2), 3, TOLERANCE);
+    }
+
+    @Test
+    public void lockstepMatchesProcessWithBias()
+    {
+        NEATConfig config = new NEATConfig();
+        config.SEED = 71;
+        config.USES_BIAS = true;
+        assertLockstepMatches(evolve(config, 2, 1), 2, TOLERANCE);
+    }
+
+    @Test
+    public void lockstepMatchesProcessWithMixedActivations()
+    {
+        NEATConfig config = new NEATConfig();
+        config.SEED = 73;
+        config.PROP_ACTIVATION = 0.3;
+        assertLockstepMatches(evolve(config, 2, 2), 2, TOLERANCE);
+    }
+
+    @Test
+    public void lockstepMatchesProcessInSinglePrecision()
+    {
+        NEATConfig config = new NEATConfig();
+        config.SEED = 79;
+        config.PRECISION = Precision.FLOAT;
+        assertLockstepMatches(evolve(config, 2, 1), 2, 1e-6);
+    }
+}
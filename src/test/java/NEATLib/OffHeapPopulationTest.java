@@ -0,0 +1,106 @@
+package NEATLib;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks the off-heap population against the compact genomes it stores, in
+ * both precisions.
+ */
+public class OffHeapPopulationTest
+{
+    /**
+     * Evolves a population with random fitness
+     * @param seed Seed of the run
+     * @param precision Precision of the weights
+     * @return Returns the NEAT instance
+     */
+    static NEAT evolve(long seed, Precision precision)
+    {
+        NEATConfig config = new NEATConfig();
+        config.SEED = seed;
+        config.PRECISION = precision;
+        NEAT neat = new NEAT(2, 1, 100, config);
+        Random random = new Random(seed);
+
+        for(int g = 0; g < 15; g++)
+        {
+            for(int i = 0; i < neat.getNetworkCount(); i++)
+            {
+                neat.addFitness(random.nextDouble(), i);
+            }
+
+            neat.advanceGeneration();
+        }
+
+        return neat;
+    }
+
+    @Test
+    public void floatRecordsMatchTheGenomes()
+    {
+        NEAT neat = evolve(13, Precision.FLOAT);
+        OffHeapPopulation population = new OffHeapPopulation(2, 1, neat);
+        // Same genomes with double weight slots
+        OffHeapPopulation doubles = new OffHeapPopulation(2, 1, evolve(13, Precision.DOUBLE));
+        Random random = new Random(13);
+        long genes = 0;
+
+        for(int i = 0; i < neat.getNetworkCount(); i++)
+        {
+            CompactGenome genome = new CompactGenome(neat.getNetwork(i));
+            GenomeView view = population.view(population.add(genome));
+            doubles.add(genome);
+            genes += genome.innovations.length;
+
+            for(int g = 0; g < genome.innovations.length; g++)
+            {
+                assertEquals(genome.getWeight(g), view.getWeight(g), 0.0);
+            }
+
+            double[] input = {random.nextDouble(), random.nextDouble()};
+            assertEquals("Genome " + i, genome.process(input)[0], view.process(input)[0], 0.0);
+        }
+
+        // Four bytes less per gene, up to the alignment of every record
+        long saved = doubles.getUsedBytes() - population.getUsedBytes();
+        assertTrue(saved + " bytes saved", saved >= genes * 4 - neat.getNetworkCount() * 4L);
+
+        // Offspring keep the float weights of their parents
+        for(int i = 0; i + 1 < population.size(); i += 2)
+        {
+            GenomeView child = population.view(population.mate(population.view(i), population.view(i + 1)));
+            double[] input = {random.nextDouble(), random.nextDouble()};
+            assertEquals(child.toGenome().process(input)[0], child.process(input)[0], 0.0);
+        }
+    }
+
+    @Test
+    public void processReusesItsScratchSpace()
+    {
+        NEAT neat = evolve(17, Precision.DOUBLE);
+        OffHeapPopulation population = new OffHeapPopulation(2, 1, neat);
+        for(int i = 0; i < neat.getNetworkCount(); i++)
+        {
+            population.add(new CompactGenome(neat.getNetwork(i)));
+        }
+
+        double[][] inputs = {{0, 0}, {0, 1}, {1, 0}, {1, 1}};
+        for(int i = 0; i < population.size(); i++)
+        {
+            GenomeView reused = population.view(i);
+            for(int round = 0; round < 3; round++)
+            {
+                for(double[] input : inputs)
+                {
+                    assertArrayEquals(population.view(i).process(input), reused.process(input), 0.0);
+                }
+            }
+        }
+    }
+}
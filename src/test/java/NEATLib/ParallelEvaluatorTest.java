@@ -0,0 +1,91 @@
+package NEATLib;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+/**
+ * Checks that fitness added from several threads is never lost and that the
+ * parallel evaluator rates every episode exactly once.
+ */
+public class ParallelEvaluatorTest
+{
+    /**
+     * Rates an episode with a value which sums up exactly in any order
+     */
+    static double rate(NEATNetwork network, int episode)
+    {
+        double output = network.process(new double[] {episode % 7 / 7.0, 1})[0];
+        return Math.round(output * 1024) / 1024.0;
+    }
+
+    @Test
+    public void concurrentFitnessIsNotLost() throws InterruptedException
+    {
+        NEATNetwork network = new NEAT(2, 1, 1).getNetwork(0);
+        Thread[] threads = new Thread[8];
+
+        for(int t = 0; t < threads.length; t++)
+        {
+            threads[t] = new Thread(() -> {
+                for(int i = 0; i < 10000; i++) {network.addFitness(1);}
+            });
+            threads[t].start();
+        }
+
+        for(Thread thread : threads) {thread.join();}
+
+        assertEquals(80000, network.getFitness(), 0.0);
+    }
+
+    @Test
+    public void parallelEvaluationMatchesSequential()
+    {
+        NEAT neat = EvaluationRuleTest.evolve(31, 50, 10);
+        int episodes = 40;
+        double[] expected = new double[neat.getNetworkCount()];
+
+        for(int i = 0; i < neat.getNetworkCount(); i++)
+        {
+            // Processing alters the network, so the sequential run uses a copy
+            NEATNetwork copy = new NEATNetwork(neat.getNetwork(i));
+            expected[i] = neat.getNetwork(i).getFitness();
+            for(int e = 0; e < episodes; e++) {expected[i] += rate(copy, e);}
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        new ParallelEvaluator(pool).evaluate(neat, episodes, ParallelEvaluatorTest::rate);
+        pool.shutdown();
+
+        for(int i = 0; i < neat.getNetworkCount(); i++)
+        {
+            assertEquals("Network " + i, expected[i], neat.getNetwork(i).getFitness(), 0.0);
+        }
+    }
+
+    @Test
+    public void splitNetworkRatesEveryEpisodeOnce()
+    {
+        NEAT neat = EvaluationRuleTest.evolve(37, 20, 5);
+        int episodes = 1001;
+        AtomicIntegerArray calls = new AtomicIntegerArray(episodes);
+        double before = neat.getNetwork(3).getFitness();
+
+        ForkJoinPool pool = new ForkJoinPool(8);
+        new ParallelEvaluator(pool).evaluate(neat, 3, episodes, (network, episode) -> {
+            calls.incrementAndGet(episode);
+            return 1;
+        });
+        pool.shutdown();
+
+        for(int e = 0; e < episodes; e++)
+        {
+            assertEquals("Episode " + e, 1, calls.get(e));
+        }
+
+        assertEquals(before + episodes, neat.getNetwork(3).getFitness(), 0.0);
+    }
+}
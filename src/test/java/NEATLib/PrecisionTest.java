@@ -0,0 +1,237 @@
+package NEATLib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks the single precision and the 16 bit quantised processing against
+ * the double precision path. Every deviation has to stay within the error
+ * bound of the respective network. The bounds are worst cases and usually
+ * exceed the observed deviation by two orders of magnitude, a bound clamped
+ * to the range of the activation function guarantees nothing at all.
+ * 
+ * The bound of the 8 bit export reaches the range of the activation function
+ * for almost every evolved network, so it is checked against fixed 
+ * tolerances measured on a seeded population instead.
+ */
+public class PrecisionTest
+{
+    static final int NETWORKS = 200;
+    static final int MUTATIONS = 10;
+    static final int SAMPLES = 50;
+    // Relative rounding error of a single precision value
+    static final double FLOAT_ERROR = Math.ulp(1.0f) / 2;
+    // Slack for the rounding of the double precision path itself
+    static final double SLACK = 1e-12;
+    // Largest share of networks whose bound may be clamped
+    static final double MAX_UNBOUNDED_SHARE = 0.1;
+    // Largest and mean deviation of the 8 bit export, about 0.17 and 0.001
+    // were measured with seed 6
+    static final double MAX_8BIT_DEVIATION = 0.25;
+    static final double MAX_8BIT_MEAN_DEVIATION = 0.005;
+
+    /**
+     * Creates a population of mutated networks
+     * @param seed Seed of the NEAT instance
+     * @return Returns the NEAT instance
+     */
+    static NEAT mutated(long seed)
+    {
+        NEATConfig config = new NEATConfig();
+        config.SEED = seed;
+        NEAT neat = new NEAT(2, 1, NETWORKS, config);
+
+        for(int i = 0; i < NETWORKS; i++)
+        {
+            for(int m = 0; m < MUTATIONS; m++)
+            {
+                neat.getNetwork(i).mutate();
+            }
+        }
+
+        return neat;
+    }
+
+    /**
+     * @return Returns random inputs within the magnitude used for the bounds
+     */
+    static double[] input(Random random)
+    {
+        return new double[] {random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1};
+    }
+
+    /**
+     * @return Returns the range of the activation function of a network
+     */
+    static double span(NEATNetwork network)
+    {
+        return network.getActivation().getMagnitude() - network.getActivation().getMinimum();
+    }
+
+    @Test
+    public void floatProcessingStaysWithinItsBound()
+    {
+        NEAT neat = mutated(1);
+        Random random = new Random(1);
+
+        for(int i = 0; i < NETWORKS; i++)
+        {
+            NEATNetwork network = neat.getNetwork(i);
+            // Processed alongside, so both carry over the values of their own
+            NEATNetwork copy = new NEATNetwork(network);
+            double bound = network.getErrorBound(1, 0, FLOAT_ERROR);
+
+            for(int s = 0; s < SAMPLES; s++)
+            {
+                double[] input = input(random);
+                neat.setPrecision(Precision.DOUBLE);
+                double exact = network.process(input)[0];
+                neat.setPrecision(Precision.FLOAT);
+                double single = copy.process(input)[0];
+
+                assertTrue("Network " + i, Math.abs(exact - single) <= bound + SLACK);
+            }
+
+            neat.setPrecision(Precision.DOUBLE);
+        }
+    }
+
+    @Test
+    public void floatGenomeMatchesFloatProcessing()
+    {
+        NEAT neat = mutated(2);
+        Random random = new Random(2);
+
+        for(int i = 0; i < NETWORKS; i++)
+        {
+            NEATNetwork network = neat.getNetwork(i);
+            neat.setPrecision(Precision.FLOAT);
+            NEATNetwork restored = new CompactGenome(network).toNetwork();
+
+            for(int s = 0; s < SAMPLES; s++)
+            {
+                double[] input = input(random);
+                assertEquals("Network " + i,
+                        network.process(input)[0], restored.process(input)[0], SLACK);
+            }
+
+            neat.setPrecision(Precision.DOUBLE);
+        }
+    }
+
+    @Test
+    public void quantizedProcessingStaysWithinItsBound()
+    {
+        NEAT neat = mutated(3);
+        Random random = new Random(3);
+
+        for(int i = 0; i < NETWORKS; i++)
+        {
+            NEATNetwork network = neat.getNetwork(i);
+            QuantizedNetwork quantized = new QuantizedNetwork(network, 16);
+            double bound = network.getErrorBound(1, quantized.getMaxWeightError(), 0);
+
+            for(int s = 0; s < SAMPLES; s++)
+            {
+                double[] input = input(random);
+                double deviation = Math.abs(network.process(input)[0] - quantized.process(input)[0]);
+
+                assertTrue("Network " + i, deviation <= bound + SLACK);
+            }
+        }
+    }
+
+    @Test
+    public void quantized8BitStaysWithinTolerance()
+    {
+        NEAT neat = mutated(6);
+        Random random = new Random(6);
+        double maxDeviation = 0;
+        double sum = 0;
+
+        for(int i = 0; i < NETWORKS; i++)
+        {
+            NEATNetwork network = neat.getNetwork(i);
+            QuantizedNetwork quantized = new QuantizedNetwork(network, 8);
+            double bound = network.getErrorBound(1, quantized.getMaxWeightError(), 0);
+
+            for(int s = 0; s < SAMPLES; s++)
+            {
+                double[] input = input(random);
+                double deviation = Math.abs(network.process(input)[0] - quantized.process(input)[0]);
+
+                assertTrue("Network " + i, deviation <= bound + SLACK);
+                maxDeviation = Math.max(maxDeviation, deviation);
+                sum += deviation;
+            }
+        }
+
+        assertTrue("Largest deviation: " + maxDeviation, maxDeviation <= MAX_8BIT_DEVIATION);
+        double mean = sum / (NETWORKS * SAMPLES);
+        assertTrue("Mean deviation: " + mean, mean <= MAX_8BIT_MEAN_DEVIATION);
+    }
+
+    @Test
+    public void fewBoundsAreClamped()
+    {
+        NEAT neat = mutated(4);
+        int floatUnbounded = 0;
+        int unbounded16 = 0;
+
+        for(int i = 0; i < NETWORKS; i++)
+        {
+            NEATNetwork network = neat.getNetwork(i);
+            double span = span(network);
+            QuantizedNetwork quantized = new QuantizedNetwork(network, 16);
+
+            if(network.getErrorBound(1, 0, FLOAT_ERROR) >= span) {floatUnbounded++;}
+            if(network.getErrorBound(1, quantized.getMaxWeightError(), 0) >= span) {unbounded16++;}
+        }
+
+        assertTrue("Float bounds clamped: " + floatUnbounded,
+                floatUnbounded <= MAX_UNBOUNDED_SHARE * NETWORKS);
+        assertTrue("16 bit bounds clamped: " + unbounded16,
+                unbounded16 <= MAX_UNBOUNDED_SHARE * NETWORKS);
+    }
+
+    @Test
+    public void genomesAndPhenotypesStoreFloats()
+    {
+        NEAT neat = mutated(5);
+        NEATNetwork network = neat.getNetwork(0);
+        network.process(input(new Random(5)));
+        assertNotNull(network.phenotype.weights);
+
+        neat.setPrecision(Precision.FLOAT);
+        CompactGenome single = new CompactGenome(network);
+        assertNull(single.weights);
+        assertNotNull(single.floatWeights);
+
+        // The connections keep double weights, rounded when they are perturbed
+        network.perturbWeights(0.1);
+        for(NEATNetwork.Connection c : network.connections)
+        {
+            assertEquals(Precision.FLOAT.round(c.weight), c.weight, 0.0);
+        }
+
+        // The compiled network switches its storage when it is processed
+        network.process(input(new Random(5)));
+        assertNull(network.phenotype.weights);
+        assertNotNull(network.phenotype.floatWeights);
+
+        neat.setPrecision(Precision.DOUBLE);
+        CompactGenome full = new CompactGenome(network);
+        assertNotNull(full.weights);
+        assertNull(full.floatWeights);
+
+        network.process(input(new Random(5)));
+        assertNotNull(network.phenotype.weights);
+        assertNull(network.phenotype.floatWeights);
+    }
+}
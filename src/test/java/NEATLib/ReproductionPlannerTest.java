@@ -0,0 +1,160 @@
+package NEATLib;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks the quotas of the planner against a straightforward sort-based
+ * largest remainder rounding, and the distribution of the tournaments.
+ */
+public class ReproductionPlannerTest
+{
+    /**
+     * Largest remainder rounding by sorting all species after their remainder
+     * @return Returns the amount of offspring of every species
+     */
+    static int[] referencePlan(List<List<NEATNetwork>> speciesList, int offspring)
+    {
+        int count = speciesList.size();
+        double[] weights = new double[count];
+        double total = 0;
+
+        for(int i = 0; i < count; i++)
+        {
+            List<NEATNetwork> species = speciesList.get(i);
+            double sum = 0;
+            for(NEATNetwork specimen : species) {sum += specimen.fitness;}
+            weights[i] = species.isEmpty() ? 0 : Math.max(sum / species.size(), 0);
+            total += weights[i];
+        }
+
+        if(!(total > 0)) {
+            total = 0;
+            for(int i = 0; i < count; i++)
+            {
+                weights[i] = speciesList.get(i).size();
+                total += weights[i];
+            }
+        }
+
+        int[] quotas = new int[count];
+        double[] remainders = new double[count];
+        List<Integer> candidates = new ArrayList<>();
+        int assigned = 0;
+
+        for(int i = 0; i < count; i++)
+        {
+            double share = total > 0 ? weights[i] * offspring / total : 0;
+            quotas[i] = (int) share;
+            remainders[i] = share - quotas[i];
+            assigned += quotas[i];
+            if(!speciesList.get(i).isEmpty()) {candidates.add(i);}
+        }
+
+        candidates.sort((Integer a, Integer b) -> remainders[a] != remainders[b]
+                ? Double.compare(remainders[b], remainders[a])
+                : Integer.compare(a, b));
+
+        for(int k = 0; k < Math.min(offspring - assigned, candidates.size()); k++)
+        {
+            quotas[candidates.get(k)]++;
+        }
+
+        return quotas;
+    }
+
+    @Test
+    public void quotasMatchTheSortBasedReference()
+    {
+        NEAT neat = new NEAT(2, 1, 1);
+        NEATNetwork template = neat.getNetwork(0);
+        ReproductionPlanner planner = new ReproductionPlanner(neat);
+        Random random = new Random(83);
+
+        for(int p = 0; p < 2000; p++)
+        {
+            int count = 1 + random.nextInt(60);
+            int offspring = random.nextInt(300);
+            // Some plans without any positive fitness, some with ties
+            double offset = random.nextInt(4) == 0 ? -1 : 0;
+            boolean isTied = random.nextInt(4) == 0;
+
+            List<List<NEATNetwork>> speciesList = new ArrayList<>();
+            int members = 0;
+            for(int s = 0; s < count; s++)
+            {
+                List<NEATNetwork> species = new ArrayList<>();
+                int size = random.nextInt(5) == 0 ? 0 : 1 + random.nextInt(10);
+                for(int m = 0; m < size; m++)
+                {
+                    NEATNetwork specimen = new NEATNetwork(template);
+                    specimen.fitness = isTied ? 1 : random.nextDouble() + offset;
+                    species.add(specimen);
+                }
+                members += size;
+                speciesList.add(species);
+            }
+
+            int[] expected = referencePlan(speciesList, offspring);
+            int[] quotas = Arrays.copyOf(planner.plan(speciesList, offspring), count);
+            assertArrayEquals("Plan " + p, expected, quotas);
+
+            int sum = 0;
+            for(int s = 0; s < count; s++)
+            {
+                sum += quotas[s];
+                if(speciesList.get(s).isEmpty()) {assertEquals("Plan " + p, 0, quotas[s]);}
+            }
+            if(members > 0) {assertEquals("Plan " + p, offspring, sum);}
+        }
+    }
+
+    @Test
+    public void tournamentsFavourTheFittest()
+    {
+        NEATConfig config = new NEATConfig();
+        config.SEED = 89;
+        config.TOURNAMENT_SIZE = 3;
+        ReproductionPlanner planner = new ReproductionPlanner(new NEAT(2, 1, 1, config));
+        int size = 10;
+        int draws = 200000;
+        int[] wins = new int[size];
+
+        for(int d = 0; d < draws; d++) {wins[planner.selectParent(size)]++;}
+
+        for(int k = 0; k < size; k++)
+        {
+            // The lowest of three uniform positions is k
+            double expected = (Math.pow(size - k, 3) - Math.pow(size - k - 1, 3)) / Math.pow(size, 3);
+            assertEquals("Position " + k, expected, (double) wins[k] / draws, 0.005);
+        }
+    }
+
+    @Test
+    public void mateDiffersFromTheFirstParent()
+    {
+        NEATConfig config = new NEATConfig();
+        config.SEED = 97;
+        ReproductionPlanner planner = new ReproductionPlanner(new NEAT(2, 1, 1, config));
+        Random random = new Random(97);
+
+        for(int d = 0; d < 10000; d++)
+        {
+            int size = 2 + random.nextInt(20);
+            int first = planner.selectParent(size);
+            int mate = planner.selectMate(size, first);
+
+            assertNotEquals(first, mate);
+            assertTrue(mate >= 0 && mate < size);
+        }
+    }
+}
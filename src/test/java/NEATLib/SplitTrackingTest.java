@@ -0,0 +1,50 @@
+package NEATLib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+import NEATLib.NEATNetwork.Connection;
+import NEATLib.NEATNetwork.Type;
+
+/**
+ * Checks that splitting the same connection gives the same node IDs in every
+ * network, also when a network splits it more than once.
+ */
+public class SplitTrackingTest
+{
+    @Test
+    public void repeatedSplitIsRegistered()
+    {
+        NEAT neat = new NEAT(1, 1, 2);
+        NEATNetwork a = neat.getNetwork(0);
+        NEATNetwork b = neat.getNetwork(1);
+        Connection splitA = a.connections.get(0);
+        Connection splitB = b.connections.get(0);
+
+        int first = a.getSplitNodeID(splitA);
+        a.nodes.add(a.new Node(Type.HIDDEN, splitA.inRef, splitA.outRef, first));
+        int second = a.getSplitNodeID(splitA);
+        assertNotEquals(first, second);
+
+        // The other network gets the same IDs for the same occurrences
+        assertEquals(first, b.getSplitNodeID(splitB));
+        b.nodes.add(b.new Node(Type.HIDDEN, splitB.inRef, splitB.outRef, first));
+        assertEquals(second, b.getSplitNodeID(splitB));
+        assertEquals(2, neat.getSplitCount());
+    }
+
+    @Test
+    public void occurrencesMatchTheNetworkIDs()
+    {
+        NEAT neat = new NEAT(1, 1, 1);
+        NEATNetwork network = neat.getNetwork(0);
+        Connection split = network.connections.get(0);
+        int first = network.getSplitNodeID(split);
+        network.nodes.add(network.new Node(Type.HIDDEN, split.inRef, split.outRef, first));
+
+        assertEquals(first, neat.addSplit(split.innovationNumber, 0));
+        assertEquals(network.getSplitNodeID(split), neat.addSplit(split.innovationNumber, 1));
+    }
+}
@@ -0,0 +1,140 @@
+package NEATLib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that the recorder writes every generation of a run, spanning
+ * several blocks, that the file reads back and exports consistently, and
+ * that a full buffer drops snapshots instead of blocking.
+ */
+public class StatsRecorderTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Runs NEAT with random fitness while recording its statistics
+     * @param recorder The recorder
+     * @param generations Amount of generations
+     * @return Returns the NEAT instance
+     */
+    static NEAT run(StatsRecorder recorder, int generations)
+    {
+        NEATConfig config = new NEATConfig();
+        config.SEED = 41;
+        NEAT neat = new NEAT(2, 1, 50, config);
+        neat.setStatsRecorder(recorder);
+        Random random = new Random(41);
+
+        for(int g = 0; g < generations; g++)
+        {
+            for(int i = 0; i < neat.getNetworkCount(); i++)
+            {
+                neat.addFitness(random.nextDouble(), i);
+            }
+
+            neat.advanceGeneration();
+        }
+
+        return neat;
+    }
+
+    @Test
+    public void everyGenerationIsRecorded() throws IOException
+    {
+        Path file = folder.newFile("run.stats").toPath();
+        int generations = StatsRecorder.BLOCK_SIZE + 44;
+
+        StatsRecorder recorder = new StatsRecorder(file, generations);
+        run(recorder, generations);
+        recorder.close();
+
+        assertEquals(0, recorder.getDroppedCount());
+        assertEquals(generations, recorder.getWrittenCount());
+
+        List<StatsRecorder.Generation> rows = StatsRecorder.read(file);
+        assertEquals(generations, rows.size());
+
+        for(int i = 0; i < rows.size(); i++)
+        {
+            StatsRecorder.Generation g = rows.get(i);
+            assertEquals(i, g.generation);
+            assertEquals(50, g.networks);
+
+            int members = 0;
+            for(int size : g.speciesSizes) {members += size;}
+            assertEquals("Species of generation " + i, g.networks, members);
+
+            assertTrue(g.fitnessMin <= g.fitnessQ1 && g.fitnessQ1 <= g.fitnessMedian
+                    && g.fitnessMedian <= g.fitnessQ3 && g.fitnessQ3 <= g.fitnessMax);
+            assertTrue(g.fitnessMin <= g.fitnessMean && g.fitnessMean <= g.fitnessMax);
+            assertTrue(g.connectionsMean <= g.connectionsMax && g.nodesMean <= g.nodesMax);
+            if(i > 0) {assertTrue(rows.get(i - 1).innovations <= g.innovations);}
+        }
+    }
+
+    @Test
+    public void csvExportHoldsEveryRow() throws IOException
+    {
+        Path file = folder.newFile("run.stats").toPath();
+        Path csv = folder.newFile("run.csv").toPath();
+
+        StatsRecorder recorder = new StatsRecorder(file, 64);
+        run(recorder, 30);
+        recorder.close();
+        StatsRecorder.exportCsv(file, csv);
+
+        List<String> lines = Files.readAllLines(csv);
+        List<StatsRecorder.Generation> rows = StatsRecorder.read(file);
+        assertEquals(String.join(",", StatsRecorder.COLUMNS), lines.get(0));
+        assertEquals(rows.size() + 1, lines.size());
+
+        for(int i = 0; i < rows.size(); i++)
+        {
+            String[] cells = lines.get(i + 1).split(",");
+            assertEquals(StatsRecorder.COLUMNS.length, cells.length);
+            assertEquals(rows.get(i).generation, Integer.parseInt(cells[0]));
+            assertEquals(rows.get(i).speciesSizes.length, Integer.parseInt(cells[2]));
+            assertEquals(rows.get(i).fitnessMedian, Double.parseDouble(cells[6]), 0.0);
+        }
+    }
+
+    @Test
+    public void fullBufferDropsSnapshots() throws IOException
+    {
+        Path file = folder.newFile("burst.stats").toPath();
+        NEAT neat = new NEAT(2, 1, 20);
+        List<NEATNetwork> networks = neat.nets;
+        List<List<NEATNetwork>> species = List.of(networks);
+
+        StatsRecorder recorder = new StatsRecorder(file, 1);
+        for(int g = 0; g < 10000; g++)
+        {
+            recorder.record(neat, g, networks, species);
+        }
+        recorder.close();
+
+        // Every snapshot is either written or counted as dropped
+        assertEquals(10000, recorder.getWrittenCount() + recorder.getDroppedCount());
+        assertEquals(recorder.getWrittenCount(), StatsRecorder.read(file).size());
+    }
+
+    @Test(expected = IOException.class)
+    public void foreignFilesAreRejected() throws IOException
+    {
+        Path file = folder.newFile("foreign.stats").toPath();
+        Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        StatsRecorder.read(file);
+    }
+}
@@ -0,0 +1,165 @@
+package NEATLib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * Checks that sweep runs are reproducible from their seeds, stop once they
+ * stall, and that the results are summarised and ranked as documented.
+ */
+public class SweepRunnerTest
+{
+    /**
+     * XOR with a bias input, rated by the squared distance to the targets
+     */
+    static class XorTask implements SweepRunner.Task
+    {
+        static final double[][] INPUTS = {{0, 0, 1}, {0, 1, 1}, {1, 0, 1}, {1, 1, 1}};
+        static final double[] TARGETS = {0, 1, 1, 0};
+
+        @Override
+        public void evaluate(NEAT neat)
+        {
+            for(int i = 0; i < neat.getNetworkCount(); i++)
+            {
+                double error = 0;
+                for(int r = 0; r < INPUTS.length; r++)
+                {
+                    double d = neat.processNetwork(INPUTS[r], i)[0] - TARGETS[r];
+                    error += d * d;
+                }
+                neat.addFitness(4 - error, i);
+            }
+        }
+
+        @Override
+        public boolean isSolved(NEAT neat)
+        {
+            return neat.getMaxFitness() > 3.9;
+        }
+    }
+
+    /**
+     * Creates a run with the given generations, or an unsolved one for -1
+     */
+    static SweepRunner.Run run(int generations, double milliseconds)
+    {
+        SweepRunner.Run run = new SweepRunner.Run();
+        run.isSolved = generations >= 0;
+        run.generations = run.isSolved ? generations : 100;
+        run.milliseconds = milliseconds;
+        run.bestFitness = generations;
+        return run;
+    }
+
+    @Test
+    public void seededRunsAreReproducible()
+    {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        SweepRunner runner = new SweepRunner(pool, 3, 1, 50, new XorTask());
+        runner.setLimits(60, 60);
+        NEATConfig config = new NEATConfig();
+        long[] seeds = {1, 2, 3, 4};
+
+        // The same configuration twice, run concurrently on the same pool
+        List<SweepRunner.Result> results = runner.run(Arrays.asList(config, config), seeds);
+        pool.shutdown();
+
+        for(int s = 0; s < seeds.length; s++)
+        {
+            SweepRunner.Run a = results.get(0).runs[s];
+            SweepRunner.Run b = results.get(1).runs[s];
+            assertEquals(seeds[s], a.seed);
+            assertEquals("Seed " + seeds[s], a.generations, b.generations);
+            assertEquals("Seed " + seeds[s], a.bestFitness, b.bestFitness, 0.0);
+            assertEquals(a.isSolved, b.isSolved);
+        }
+
+        // A run on its own follows the same course as within the sweep
+        NEATConfig seeded = new NEATConfig(config);
+        seeded.SEED = seeds[2];
+        SweepRunner.Run single = runner.runSingle(seeded);
+        assertEquals(results.get(0).runs[2].generations, single.generations);
+        assertEquals(results.get(0).runs[2].bestFitness, single.bestFitness, 0.0);
+    }
+
+    @Test
+    public void stalledRunsStopEarly()
+    {
+        SweepRunner runner = new SweepRunner(3, 1, 20, new SweepRunner.Task() {
+            @Override
+            public void evaluate(NEAT neat)
+            {
+                for(int i = 0; i < neat.getNetworkCount(); i++) {neat.addFitness(1, i);}
+            }
+
+            @Override
+            public boolean isSolved(NEAT neat)
+            {
+                return false;
+            }
+        });
+        runner.setLimits(500, 10);
+
+        SweepRunner.Run run = runner.runSingle(new NEATConfig());
+        assertFalse(run.isSolved);
+        assertEquals(11, run.generations);
+        assertEquals(1, run.bestFitness, 0.0);
+    }
+
+    @Test
+    public void resultsSummariseSolvedRuns()
+    {
+        SweepRunner.Result result = new SweepRunner.Result(new NEATConfig(), new SweepRunner.Run[] {
+            run(30, 300), run(-1, 900), run(10, 100), run(20, 200)});
+
+        assertEquals(3, result.solved);
+        assertEquals(0.75, result.getSolveRate(), 0.0);
+        assertEquals(10, result.minGenerations);
+        assertEquals(30, result.maxGenerations);
+        assertEquals(20, result.meanGenerations, 0.0);
+        assertEquals(20, result.medianGenerations, 0.0);
+        assertEquals(200, result.medianMilliseconds, 0.0);
+
+        SweepRunner.Result unsolved = new SweepRunner.Result(new NEATConfig(), new SweepRunner.Run[] {run(-1, 5)});
+        assertEquals(0, unsolved.solved);
+        assertEquals(Double.POSITIVE_INFINITY, unsolved.meanGenerations, 0.0);
+    }
+
+    @Test
+    public void resultsAreRanked()
+    {
+        SweepRunner runner = new SweepRunner(3, 1, 50, new XorTask());
+        runner.setLimits(80, 30);
+
+        NEATConfig frozen = new NEATConfig();
+        // Neither structure nor weights change, no run can improve
+        frozen.PROP_NODE = 0;
+        frozen.PROP_CONNECTION = 0;
+        frozen.PROP_WEIGHT = 0;
+        NEATConfig tuned = new NEATConfig();
+        tuned.PORTION_MUTATION = 1.0;
+
+        List<SweepRunner.Result> results = runner.run(
+                Arrays.asList(frozen, new NEATConfig(), tuned), new long[] {5, 6, 7});
+
+        for(int i = 1; i < results.size(); i++)
+        {
+            SweepRunner.Result a = results.get(i - 1);
+            SweepRunner.Result b = results.get(i);
+            assertTrue(a.solved > b.solved || (a.solved == b.solved
+                    && (a.meanGenerations < b.meanGenerations || (a.meanGenerations == b.meanGenerations
+                            && a.meanBestFitness >= b.meanBestFitness))));
+        }
+
+        assertTrue(results.get(0).config == tuned && results.get(0).solved > 0);
+        assertTrue(results.get(results.size() - 1).config == frozen);
+    }
+}
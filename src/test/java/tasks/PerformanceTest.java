@@ -0,0 +1,322 @@
+package tasks;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import NEATLib.LockstepEvaluator;
+import NEATLib.NEAT;
+import NEATLib.NEATConfig;
+import NEATLib.NEATNetwork;
+
+/**
+ * Performance regression harness. Runs fixed seed workloads through the hot
+ * paths of the library and measures the throughput and the bytes allocated
+ * per operation, the latter through the ThreadMXBean of the JVM. Both are
+ * compared against the budgets of a properties file:
+ *
+ * <pre>
+ * allocationTolerance     relative excess of the allocation budgets allowed
+ * throughputTolerance     relative drop below the throughput budgets allowed
+ * [workload].bytesPerOp   allocated bytes per operation, 0 marks a path which
+ *                         must not allocate at all
+ * [workload].opsPerSecond operations per second
+ * </pre>
+ *
+ * Fails whenever a budget is broken. The throughput depends on the machine
+ * and its load, so its budgets are only comparable when they have been
+ * recorded on the same machine. Both are measured with the default flags of
+ * the JVM. The harness is excluded from the test task, run it through
+ * "gradle perfCheck".
+ * "gradle perfUpdate" runs main with "update" after the path of the budgets
+ * file to write the measured values into it instead.
+ */
+public class PerformanceTest {
+
+	public String budgetsPath = System.getProperty("perf.budgets", "perf-budgets.properties");
+	public boolean isUpdating = false;
+	public long seed = 1;
+	public int networks = 150;
+	// Generations evolved on XOR before the workloads run
+	public int generations = 20;
+
+	// Budget lines measured while updating, in the order of the workloads
+	List<String> updates = new ArrayList<>();
+
+	// Rounds run before measuring, to let the JIT compiler settle
+	public int warmupRounds = 10;
+	public int measuredRounds = 15;
+
+	static final double DEFAULT_ALLOCATION_TOLERANCE = 0.1;
+	static final double DEFAULT_THROUGHPUT_TOLERANCE = 0.5;
+
+	static final double[][] XOR_INPUTS = {{0, 0}, {0, 1}, {1, 0}, {1, 1}};
+
+	/**
+	 * Operation measured in rounds. Only run is measured.
+	 */
+	interface Workload {
+		/**
+		 * Prepares the next round
+		 */
+		default void prepare(int operations) {
+		}
+
+		void run(int operations);
+	}
+
+	@Test
+	public void workloadsWithinBudget() {
+		assertEquals("Budgets exceeded, see the output", 0, runTest());
+	}
+
+	public int runTest() {
+		Properties budgets = new Properties();
+		try(InputStream in = new FileInputStream(budgetsPath)) {
+			budgets.load(in);
+		} catch(IOException e) {
+			if(!isUpdating) {
+				System.out.println("Could not read the budgets from " + budgetsPath + ": " + e.getMessage());
+				return 1;
+			}
+		}
+
+		double allocationTolerance = Double.parseDouble(budgets.getProperty(
+				"allocationTolerance", String.valueOf(DEFAULT_ALLOCATION_TOLERANCE)));
+		double throughputTolerance = Double.parseDouble(budgets.getProperty(
+				"throughputTolerance", String.valueOf(DEFAULT_THROUGHPUT_TOLERANCE)));
+
+		NEAT neat = evolve();
+		List<NEATNetwork> population = new ArrayList<>();
+		for(int i = 0; i < networks; i++) {
+			population.add(neat.getNetwork(i));
+		}
+
+		int failures = 0;
+		updates.clear();
+		System.out.println(String.format("%-22s %14s %14s %12s %12s", "Workload", "ops/s", "budget", "bytes/op", "budget"));
+
+		failures += check("process", 20000, new Workload() {
+			int next = 0;
+
+			@Override
+			public void run(int operations) {
+				for(int o = 0; o < operations; o++) {
+					population.get(next).process(XOR_INPUTS[o & 3]);
+					next = (next + 1) % networks;
+				}
+			}
+		}, budgets, allocationTolerance, throughputTolerance);
+
+		LockstepEvaluator lockstep = new LockstepEvaluator(neat);
+		double[][] output = new double[networks][1];
+		failures += check("lockstepProcess", 200, (int operations) -> {
+			for(int o = 0; o < operations; o++) {
+				lockstep.process(XOR_INPUTS[o & 3], output);
+			}
+		}, budgets, allocationTolerance, throughputTolerance);
+
+		failures += check("compareCompatibility", 20000, new Workload() {
+			int next = 0;
+
+			@Override
+			public void run(int operations) {
+				for(int o = 0; o < operations; o++) {
+					NEATNetwork a = population.get(next);
+					NEATNetwork b = population.get((next * 7 + 1) % networks);
+					a.compareCompatibility(b, 1.0, 1.0, .4);
+					next = (next + 1) % networks;
+				}
+			}
+		}, budgets, allocationTolerance, throughputTolerance);
+
+		failures += check("mate", 2000, new Workload() {
+			int next = 0;
+
+			@Override
+			public void run(int operations) {
+				for(int o = 0; o < operations; o++) {
+					NEATNetwork a = population.get(next);
+					NEATNetwork b = population.get((next * 7 + 1) % networks);
+					a.mate(a, b);
+					next = (next + 1) % networks;
+				}
+			}
+		}, budgets, allocationTolerance, throughputTolerance);
+
+		failures += check("mutate", 2000, new Workload() {
+			List<NEATNetwork> copies = new ArrayList<>();
+
+			@Override
+			public void prepare(int operations) {
+				copies.clear();
+				for(int o = 0; o < operations; o++) {
+					copies.add(new NEATNetwork(population.get(o % networks)));
+				}
+			}
+
+			@Override
+			public void run(int operations) {
+				for(int o = 0; o < operations; o++) {
+					copies.get(o).mutate();
+				}
+			}
+		}, budgets, allocationTolerance, throughputTolerance);
+
+		failures += check("advanceGeneration", 1, new Workload() {
+			NEAT advancing;
+
+			// Start every round from the same generation
+			@Override
+			public void prepare(int operations) {
+				advancing = evolve();
+				evaluate(advancing);
+			}
+
+			@Override
+			public void run(int operations) {
+				advancing.advanceGeneration();
+				advancing.resetFitness();
+			}
+		}, budgets, allocationTolerance, throughputTolerance);
+
+		if(isUpdating) {
+			try(PrintWriter out = new PrintWriter(new FileWriter(budgetsPath))) {
+				out.println("# Budgets of tasks.PerformanceTest, see there for the format");
+				out.println("allocationTolerance=" + allocationTolerance);
+				out.println("throughputTolerance=" + throughputTolerance);
+				for(String line : updates) {
+					out.println(line);
+				}
+			} catch(IOException e) {
+				System.out.println("Could not write the budgets to " + budgetsPath + ": " + e.getMessage());
+				return 1;
+			}
+			System.out.println("Budgets written to " + budgetsPath);
+			return 0;
+		}
+
+		System.out.println(failures == 0 ? "All workloads within budget" : failures + " budgets exceeded");
+
+		return failures == 0 ? 0 : 1;
+	}
+
+	/**
+	 * Creates a population with the fixed seed and evolves it on XOR
+	 */
+	NEAT evolve() {
+		NEATConfig config = new NEATConfig();
+		config.SEED = seed;
+		NEAT neat = new NEAT(2, 1, networks, config);
+
+		for(int g = 0; g < generations; g++) {
+			evaluate(neat);
+			neat.advanceGeneration();
+			neat.resetFitness();
+		}
+
+		return neat;
+	}
+
+	static void evaluate(NEAT neat) {
+		for(int i = 0; i < neat.getNetworkCount(); i++) {
+			for(double[] inputs : XOR_INPUTS) {
+				double output = neat.processNetwork(inputs, i)[0];
+				double target = inputs[0] != inputs[1] ? 1 : 0;
+				neat.addFitness(25 * (1 - Math.abs(target - output)), i);
+			}
+		}
+	}
+
+	/**
+	 * Measures a workload and compares it against its budgets, or stores the
+	 * measured values as the new budgets when updating
+	 * @return Returns the amount of budgets exceeded
+	 */
+	int check(String name, int operations, Workload workload, Properties budgets,
+			double allocationTolerance, double throughputTolerance) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+
+		for(int r = 0; r < warmupRounds; r++) {
+			workload.prepare(operations);
+			workload.run(operations);
+		}
+
+		long[] nanos = new long[measuredRounds];
+		long[] bytes = new long[measuredRounds];
+		for(int r = 0; r < measuredRounds; r++) {
+			workload.prepare(operations);
+
+			long startBytes = threads.getThreadAllocatedBytes(thread);
+			long start = System.nanoTime();
+			workload.run(operations);
+			nanos[r] = System.nanoTime() - start;
+			bytes[r] = threads.getThreadAllocatedBytes(thread) - startBytes;
+		}
+
+		// The median round, so a garbage collection or a compilation in a
+		// single round does not count
+		Arrays.sort(nanos);
+		Arrays.sort(bytes);
+		double opsPerSecond = operations / (nanos[measuredRounds / 2] / 1e9);
+		// Below a byte per operation only the measurement itself allocates
+		double bytesPerOp = Math.floor((double) bytes[measuredRounds / 2] / operations);
+
+		String opsKey = name + ".opsPerSecond";
+		String bytesKey = name + ".bytesPerOp";
+		if(isUpdating) {
+			budgets.setProperty(opsKey, String.valueOf(Math.round(opsPerSecond)));
+			budgets.setProperty(bytesKey, String.valueOf(Math.round(bytesPerOp)));
+			updates.add(bytesKey + "=" + budgets.getProperty(bytesKey));
+			updates.add(opsKey + "=" + budgets.getProperty(opsKey));
+		}
+
+		int failures = 0;
+		String opsBudget = budgets.getProperty(opsKey);
+		String bytesBudget = budgets.getProperty(bytesKey);
+		String verdict = "";
+
+		if(opsBudget == null || bytesBudget == null) {
+			verdict = "no budget";
+			failures++;
+		} else {
+			if(opsPerSecond < Double.parseDouble(opsBudget) * (1 - throughputTolerance)) {
+				verdict += " slow";
+				failures++;
+			}
+
+			double allowedBytes = Double.parseDouble(bytesBudget);
+			if(allowedBytes == 0 ? bytesPerOp > 0 : bytesPerOp > allowedBytes * (1 + allocationTolerance)) {
+				verdict += allowedBytes == 0 ? " allocates" : " allocates too much";
+				failures++;
+			}
+		}
+
+		System.out.println(String.format("%-22s %14.0f %14s %12.0f %12s %s",
+				name, opsPerSecond, opsBudget, bytesPerOp, bytesBudget, verdict));
+
+		return failures;
+	}
+
+	public static void main(String[] args) {
+		PerformanceTest test = new PerformanceTest();
+		if(args.length > 0) {
+			test.budgetsPath = args[0];
+		}
+		test.isUpdating = args.length > 1 && args[1].equals("update");
+
+		System.exit(test.runTest());
+	}
+}